@@ -200,3 +200,18 @@ class InvalidEntityType(Exception):
             f"The entity dataframe you have provided must be a Pandas DataFrame or a SQL query, "
             f"but we found: {entity_type} "
         )
+
+
+class DynamoDBUnprocessedItemsError(Exception):
+    def __init__(self, table_name: str, num_items: int, num_retries: int):
+        super().__init__(
+            f"DynamoDB left {num_items} items of table '{table_name}' unprocessed after {num_retries} retries"
+        )
+
+
+class RegistryUpdateConflict(Exception):
+    def __init__(self, object_type: str, name: str, project: str):
+        super().__init__(
+            f"The {object_type} {name} of project {project} was modified by another writer since the registry was "
+            "read. Please refresh the registry and retry."
+        )
@@ -11,12 +11,17 @@
 # WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
 # See the License for the specific language governing permissions and
 # limitations under the License.
+import asyncio
 import os
+import threading
 import warnings
 from collections import Counter, OrderedDict, defaultdict
+from concurrent.futures import ThreadPoolExecutor, as_completed, wait
+from dataclasses import dataclass
 from datetime import datetime, timedelta
+from functools import partial, wraps
 from pathlib import Path
-from typing import Any, Dict, Iterable, List, Optional, Tuple, Union
+from typing import Any, Dict, Iterable, List, Optional, Tuple, Union, cast
 
 import pandas as pd
 from colorama import Fore, Style
@@ -43,6 +48,7 @@ from feast.protos.feast.serving.ServingService_pb2 import (
     GetOnlineFeaturesResponse,
 )
 from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
+from feast.protos.feast.types.Value_pb2 import Value as ValueProto
 from feast.registry import Registry
 from feast.repo_config import RepoConfig, load_repo_config
 from feast.usage import log_exceptions, log_exceptions_and_usage
@@ -50,6 +56,9 @@ from feast.version import get_version
 
 warnings.simplefilter("once", DeprecationWarning)
 
+# Maximum amount of distinct feature lists for which online retrieval plans are cached
+MAX_CACHED_RETRIEVAL_PLANS = 1000
+
 
 class FeatureStore:
     """
@@ -64,6 +73,10 @@ class FeatureStore:
     config: RepoConfig
     repo_path: Path
     _registry: Registry
+    _provider: Optional[Provider] = None
+    _online_read_executor: Optional[ThreadPoolExecutor] = None
+    _online_retrieval_plans: Dict[Tuple, "_OnlineRetrievalPlan"]
+    _online_retrieval_plans_version: Optional[str] = None
 
     @log_exceptions
     def __init__(
@@ -86,12 +99,8 @@ class FeatureStore:
         else:
             raise ValueError("Please specify one of repo_path or config.")
 
-        registry_config = self.config.get_registry_config()
-        self._registry = Registry(
-            registry_path=registry_config.path,
-            repo_path=self.repo_path,
-            cache_ttl=timedelta(seconds=registry_config.cache_ttl_seconds),
-        )
+        self._registry = self._create_registry()
+        self._online_retrieval_plans = {}
 
     @log_exceptions
     def version(self) -> str:
@@ -110,7 +119,11 @@ class FeatureStore:
 
     def _get_provider(self) -> Provider:
         # TODO: Bake self.repo_path into self.config so that we dont only have one interface to paths
-        return get_provider(self.config, self.repo_path)
+        # The provider is kept for the lifetime of the feature store, so that its online store clients and the
+        # rows held by the online cache are reused across calls
+        if self._provider is None:
+            self._provider = get_provider(self.config, self.repo_path)
+        return self._provider
 
     @log_exceptions_and_usage
     def refresh_registry(self):
@@ -125,15 +138,25 @@ class FeatureStore:
         Additionally, the TTL for the registry cache can be set to infinity (by setting it to 0), which means that
         refresh_registry() will become the only way to update the cached registry. If the TTL is set to a value
         greater than 0, then once the cache becomes stale (more time than the TTL has passed), a new cache will be
-        downloaded synchronously, which may increase latencies if the triggering method is get_online_features()
+        downloaded synchronously, which may increase latencies if the triggering method is get_online_features(),
+        unless background_refresh is enabled in the registry config.
         """
+        self._registry.stop_background_refresh()
+        self._registry = self._create_registry()
+        self._registry.refresh()
+
+    def _create_registry(self) -> Registry:
         registry_config = self.config.get_registry_config()
-        self._registry = Registry(
+        return Registry(
             registry_path=registry_config.path,
             repo_path=self.repo_path,
             cache_ttl=timedelta(seconds=registry_config.cache_ttl_seconds),
+            background_refresh=registry_config.background_refresh,
+            max_staleness=timedelta(seconds=registry_config.max_staleness_seconds)
+            if registry_config.max_staleness_seconds
+            else None,
+            sharded=registry_config.sharded,
         )
-        self._registry.refresh()
 
     @log_exceptions_and_usage
     def list_entities(self, allow_cache: bool = False) -> List[Entity]:
@@ -246,6 +269,7 @@ class FeatureStore:
         self,
         features: Optional[Union[List[str], FeatureService]],
         feature_refs: Optional[List[str]],
+        allow_cache: bool = False,
     ) -> List[str]:
         _features = features or feature_refs
         if not _features:
@@ -255,7 +279,9 @@ class FeatureStore:
         if isinstance(_features, FeatureService):
             # Get the latest value of the feature service, in case the object passed in has been updated underneath us.
             _feature_refs = _get_feature_refs_from_feature_services(
-                self.get_feature_service(_features.name)
+                self._registry.get_project_objects(
+                    self.project, allow_cache=allow_cache
+                ).get_feature_service(_features.name)
             )
         else:
             _feature_refs = _features
@@ -351,6 +377,8 @@ class FeatureStore:
             partial=True,
         )
 
+        # The cached registry has been changed in place, so its version id can no longer be trusted
+        self._clear_online_retrieval_plans()
         if commit:
             self._registry.commit()
 
@@ -471,7 +499,9 @@ class FeatureStore:
 
         _feature_refs = self._get_features(features, feature_refs)
 
-        all_feature_views = self._registry.list_feature_views(project=self.project)
+        all_feature_views = list(
+            self._registry.get_project_objects(self.project).feature_views.values()
+        )
         feature_views = list(
             view for view, _ in _group_feature_refs(_feature_refs, all_feature_views)
         )
@@ -559,7 +589,7 @@ class FeatureStore:
             len(feature_views_to_materialize),
             self.config.online_store.type,
         )
-        # TODO paging large loads
+        intervals = []
         for feature_view in feature_views_to_materialize:
             start_date = feature_view.most_recent_end_time
             if start_date is None:
@@ -569,32 +599,9 @@ class FeatureStore:
                         f" either a ttl to be set or for materialize() to have been run at least once."
                     )
                 start_date = datetime.utcnow() - feature_view.ttl
-            provider = self._get_provider()
-            print(
-                f"{Style.BRIGHT + Fore.GREEN}{feature_view.name}{Style.RESET_ALL}"
-                f" from {Style.BRIGHT + Fore.GREEN}{start_date.replace(microsecond=0).astimezone()}{Style.RESET_ALL}"
-                f" to {Style.BRIGHT + Fore.GREEN}{end_date.replace(microsecond=0).astimezone()}{Style.RESET_ALL}:"
-            )
-
-            def tqdm_builder(length):
-                return tqdm(total=length, ncols=100)
-
-            start_date = utils.make_tzaware(start_date)
-            end_date = utils.make_tzaware(end_date)
-
-            provider.materialize_single_feature_view(
-                config=self.config,
-                feature_view=feature_view,
-                start_date=start_date,
-                end_date=end_date,
-                registry=self._registry,
-                project=self.project,
-                tqdm_builder=tqdm_builder,
-            )
+            intervals.append((feature_view, start_date, end_date))
 
-            self._registry.apply_materialization(
-                feature_view, self.project, start_date, end_date
-            )
+        self._materialize_intervals(intervals, print_time_range=True)
 
     @log_exceptions_and_usage
     def materialize(
@@ -670,30 +677,152 @@ class FeatureStore:
             len(feature_views_to_materialize),
             self.config.online_store.type,
         )
-        # TODO paging large loads
-        for feature_view in feature_views_to_materialize:
-            provider = self._get_provider()
-            print(f"{Style.BRIGHT + Fore.GREEN}{feature_view.name}{Style.RESET_ALL}:")
+        intervals = [
+            (feature_view, start_date, end_date)
+            for feature_view in feature_views_to_materialize
+        ]
+        self._materialize_intervals(intervals, print_time_range=False)
 
-            def tqdm_builder(length):
-                return tqdm(total=length, ncols=100)
+    def _materialize_intervals(
+        self,
+        intervals: List[Tuple[FeatureView, datetime, datetime]],
+        print_time_range: bool,
+    ):
+        """
+        Materializes every feature view over its interval, and records the interval in the registry.
 
-            start_date = utils.make_tzaware(start_date)
-            end_date = utils.make_tzaware(end_date)
+        Intervals are split into time shards of config.materialization.shard_duration_seconds, and up to
+        config.materialization.concurrency shards are materialized at the same time across all feature views.
+        The interval of a feature view is only recorded once all of its shards have succeeded.
+
+        If config.materialization.checkpoint is set, every completed shard is also recorded in the registry as a
+        checkpoint, and the parts of the intervals that are covered by checkpoints of an earlier, unfinished run
+        are skipped.
+        """
+        provider = self._get_provider()
+        materialization_config = self.config.materialization
+        shard_duration = (
+            timedelta(seconds=materialization_config.shard_duration_seconds)
+            if materialization_config.shard_duration_seconds
+            else None
+        )
 
+        def tqdm_builder(length, desc=None):
+            return tqdm(total=length, ncols=100, desc=desc)
+
+        def materialize_shard(registry, feature_view, start_date, end_date, desc=None):
             provider.materialize_single_feature_view(
                 config=self.config,
                 feature_view=feature_view,
                 start_date=start_date,
                 end_date=end_date,
-                registry=self._registry,
+                registry=registry,
                 project=self.project,
-                tqdm_builder=tqdm_builder,
+                tqdm_builder=partial(tqdm_builder, desc=desc),
             )
 
-            self._registry.apply_materialization(
-                feature_view, self.project, start_date, end_date
+        def record_shard(feature_view, start_date, end_date, is_last_shard):
+            # The last shard is recorded as part of the whole interval right afterwards
+            if materialization_config.checkpoint and not is_last_shard:
+                self._registry.apply_materialization_checkpoint(
+                    feature_view, self.project, start_date, end_date
+                )
+
+        shards_per_interval = []
+        for feature_view, start_date, end_date in intervals:
+            start_date = utils.make_tzaware(start_date)
+            end_date = utils.make_tzaware(end_date)
+            time_ranges = (
+                _subtract_time_ranges(
+                    start_date, end_date, feature_view.materialization_checkpoints
+                )
+                if materialization_config.checkpoint
+                else [(start_date, end_date)]
             )
+            shards = [
+                shard
+                for range_start, range_end in time_ranges
+                for shard in _split_time_range(range_start, range_end, shard_duration)
+            ]
+            shards_per_interval.append((feature_view, start_date, end_date, shards))
+
+        if materialization_config.concurrency == 1:
+            for feature_view, start_date, end_date, shards in shards_per_interval:
+                _print_feature_view_materialization_log(
+                    feature_view, start_date, end_date, print_time_range
+                )
+                for i, (shard_start, shard_end) in enumerate(shards):
+                    materialize_shard(
+                        self._registry, feature_view, shard_start, shard_end
+                    )
+                    record_shard(
+                        feature_view, shard_start, shard_end, i == len(shards) - 1
+                    )
+                self._registry.apply_materialization(
+                    feature_view, self.project, start_date, end_date
+                )
+            return
+
+        # The registry isn't thread safe, and providers refresh it when they read from it. Shards read it through
+        # a proxy holding registry_lock, which is also held here while intervals are applied and committed
+        registry_lock = threading.Lock()
+        shard_registry = cast(Registry, _LockedRegistry(self._registry, registry_lock))
+        remaining_shards: Dict[str, int] = {}
+        futures = {}
+        error = None
+        with ThreadPoolExecutor(
+            max_workers=materialization_config.concurrency
+        ) as executor:
+            for feature_view, start_date, end_date, shards in shards_per_interval:
+                _print_feature_view_materialization_log(
+                    feature_view, start_date, end_date, print_time_range
+                )
+                remaining_shards[feature_view.name] = len(shards)
+                if not shards:
+                    with registry_lock:
+                        self._registry.apply_materialization(
+                            feature_view, self.project, start_date, end_date
+                        )
+                for shard_start, shard_end in shards:
+                    future = executor.submit(
+                        materialize_shard,
+                        shard_registry,
+                        feature_view,
+                        shard_start,
+                        shard_end,
+                        desc=feature_view.name,
+                    )
+                    futures[future] = (
+                        feature_view,
+                        start_date,
+                        end_date,
+                        (shard_start, shard_end),
+                    )
+
+            # Intervals are only recorded from this thread
+            for future in as_completed(futures):
+                if future.cancelled():
+                    continue
+                feature_view, start_date, end_date, shard = futures[future]
+                if future.exception() is not None:
+                    if error is None:
+                        error = future.exception()
+                        for pending in futures:
+                            pending.cancel()
+                    continue
+
+                remaining_shards[feature_view.name] -= 1
+                with registry_lock:
+                    record_shard(
+                        feature_view, *shard, remaining_shards[feature_view.name] == 0
+                    )
+                    if remaining_shards[feature_view.name] == 0:
+                        self._registry.apply_materialization(
+                            feature_view, self.project, start_date, end_date
+                        )
+
+        if error is not None:
+            raise error
 
     @log_exceptions_and_usage
     def get_online_features(
@@ -702,6 +831,7 @@ class FeatureStore:
         entity_rows: List[Dict[str, Any]],
         feature_refs: Optional[List[str]] = None,
         full_feature_names: bool = False,
+        timeout: Optional[float] = None,
     ) -> OnlineResponse:
         """
         Retrieves the latest online feature data.
@@ -711,8 +841,8 @@ class FeatureStore:
         duration (which can be set to infinity). If the cached registry is stale (more time than the TTL has
         passed), then a new registry will be downloaded synchronously by this method. This download may
         introduce latency to online feature retrieval. In order to avoid synchronous downloads, please call
-        refresh_registry() prior to the TTL being reached. Remember it is possible to set the cache TTL to
-        infinity (cache forever).
+        refresh_registry() prior to the TTL being reached, or enable background_refresh in the registry config.
+        Remember it is possible to set the cache TTL to infinity (cache forever).
 
         Args:
             features: List of feature references that will be returned for each entity.
@@ -721,6 +851,9 @@ class FeatureStore:
                 the feature and feature table names respectively.
                 Only the feature name is required.
             entity_rows: A list of dictionaries where each key-value is an entity-name, entity-value pair.
+            timeout: (Optional) Maximum amount of seconds to wait for the online store. Feature views are read
+                concurrently, and the features of every feature view that hasn't been read by then are returned
+                with a NOT_FOUND status.
 
         Returns:
             OnlineResponse containing the feature data in records.
@@ -771,13 +904,68 @@ class FeatureStore:
             ... )
             >>> online_response_dict = online_response.to_dict()
         """
-        _feature_refs = self._get_features(features, feature_refs)
+        provider = self._get_provider()
+        grouped_refs, table_entity_keys, result_rows = self._prepare_online_read(
+            features, entity_rows, feature_refs, full_feature_names
+        )
+        read_rows_per_table = self._online_read_tables(
+            provider, grouped_refs, table_entity_keys, timeout
+        )
+        _populate_result_rows(
+            result_rows, grouped_refs, read_rows_per_table, full_feature_names
+        )
+
+        return OnlineResponse(GetOnlineFeaturesResponse(field_values=result_rows))
 
+    async def get_online_features_async(
+        self,
+        features: Union[List[str], FeatureService],
+        entity_rows: List[Dict[str, Any]],
+        feature_refs: Optional[List[str]] = None,
+        full_feature_names: bool = False,
+        timeout: Optional[float] = None,
+    ) -> OnlineResponse:
+        """
+        Retrieves the latest online feature data without blocking the event loop while reading from the
+        online store.
+
+        This method takes the same arguments as get_online_features() and returns the same response. Feature
+        views are read concurrently through the asyncio interface of the online store, or on executor
+        threads for online stores that don't provide one. Note that a stale registry is still refreshed
+        synchronously; call refresh_registry() ahead of the TTL to avoid blocking the event loop.
+        """
         provider = self._get_provider()
-        entities = self.list_entities(allow_cache=True)
-        entity_name_to_join_key_map = {}
-        for entity in entities:
-            entity_name_to_join_key_map[entity.name] = entity.join_key
+        grouped_refs, table_entity_keys, result_rows = self._prepare_online_read(
+            features, entity_rows, feature_refs, full_feature_names
+        )
+        read_rows_per_table = await self._online_read_tables_async(
+            provider, grouped_refs, table_entity_keys, timeout
+        )
+        _populate_result_rows(
+            result_rows, grouped_refs, read_rows_per_table, full_feature_names
+        )
+
+        return OnlineResponse(GetOnlineFeaturesResponse(field_values=result_rows))
+
+    def _prepare_online_read(
+        self,
+        features: Union[List[str], FeatureService],
+        entity_rows: List[Dict[str, Any]],
+        feature_refs: Optional[List[str]],
+        full_feature_names: bool,
+    ) -> Tuple[
+        List[Tuple[FeatureView, List[str]]],
+        List[List[EntityKeyProto]],
+        List[GetOnlineFeaturesResponse.FieldValues],
+    ]:
+        """
+        Groups the requested features by feature view, and builds the entity keys to read for every
+        feature view along with the response rows holding the entity values.
+        """
+        plan = self._get_online_retrieval_plan(
+            features, feature_refs, full_feature_names
+        )
+        entity_name_to_join_key_map = plan.entity_name_to_join_key_map
 
         join_key_rows = []
         for row in entity_rows:
@@ -799,52 +987,242 @@ class FeatureStore:
             union_of_entity_keys.append(_entity_row_to_key(entity_row_proto))
             result_rows.append(_entity_row_to_field_values(entity_row_proto))
 
-        all_feature_views = self._registry.list_feature_views(
-            project=self.project, allow_cache=True
+        grouped_refs = plan.grouped_refs
+        table_entity_keys = [
+            _get_table_entity_keys(
+                table, union_of_entity_keys, entity_name_to_join_key_map
+            )
+            for table, _ in grouped_refs
+        ]
+
+        return grouped_refs, table_entity_keys, result_rows
+
+    def _get_online_retrieval_plan(
+        self,
+        features: Union[List[str], FeatureService],
+        feature_refs: Optional[List[str]],
+        full_feature_names: bool,
+    ) -> "_OnlineRetrievalPlan":
+        """
+        Returns the retrieval plan for the requested features, compiling it if the registry changed since
+        it was last compiled.
+        """
+        version_id = self._registry.get_version_id(allow_cache=True)
+        if version_id != self._online_retrieval_plans_version:
+            self._online_retrieval_plans = {}
+            self._online_retrieval_plans_version = version_id
+
+        _features = features or feature_refs
+        plan_key = (
+            ("feature_service", _features.name)
+            if isinstance(_features, FeatureService)
+            else tuple(_features or ()),
+            full_feature_names,
+        )
+        plan = self._online_retrieval_plans.get(plan_key)
+        if plan is None:
+            plan = self._compile_online_retrieval_plan(
+                features, feature_refs, full_feature_names
+            )
+            if len(self._online_retrieval_plans) >= MAX_CACHED_RETRIEVAL_PLANS:
+                self._online_retrieval_plans.clear()
+            self._online_retrieval_plans[plan_key] = plan
+        return plan
+
+    def _compile_online_retrieval_plan(
+        self,
+        features: Union[List[str], FeatureService],
+        feature_refs: Optional[List[str]],
+        full_feature_names: bool,
+    ) -> "_OnlineRetrievalPlan":
+        _feature_refs = self._get_features(features, feature_refs, allow_cache=True)
+
+        # Plans only read the objects of the registry, so they use the shared ones instead of copies
+        project_objects = self._registry.get_project_objects(
+            self.project, allow_cache=True
         )
+        entity_name_to_join_key_map = {}
+        for entity in project_objects.entities.values():
+            entity_name_to_join_key_map[entity.name] = entity.join_key
+
+        all_feature_views = list(project_objects.feature_views.values())
 
         _validate_feature_refs(_feature_refs, full_feature_names)
         grouped_refs = _group_feature_refs(_feature_refs, all_feature_views)
-        for table, requested_features in grouped_refs:
-            entity_keys = _get_table_entity_keys(
-                table, union_of_entity_keys, entity_name_to_join_key_map
-            )
-            read_rows = provider.online_read(
+
+        return _OnlineRetrievalPlan(
+            entity_name_to_join_key_map=entity_name_to_join_key_map,
+            grouped_refs=grouped_refs,
+        )
+
+    def _clear_online_retrieval_plans(self):
+        """Drops all retrieval plans, which is needed whenever the cached registry is changed in place."""
+        self._online_retrieval_plans = {}
+        self._online_retrieval_plans_version = None
+
+    def _online_read_tables(
+        self,
+        provider: Provider,
+        grouped_refs: List[Tuple[FeatureView, List[str]]],
+        table_entity_keys: List[List[EntityKeyProto]],
+        timeout: Optional[float],
+    ) -> List[
+        Optional[List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]]
+    ]:
+        """
+        Reads the requested features of every feature view from the online store, reading the feature
+        views concurrently. Returns None in place of the rows of every feature view that wasn't read
+        before the timeout.
+        """
+
+        def _read_table(table, requested_features, entity_keys):
+            return provider.online_read(
                 config=self.config,
                 table=table,
                 entity_keys=entity_keys,
                 requested_features=requested_features,
             )
-            for row_idx, read_row in enumerate(read_rows):
-                row_ts, feature_data = read_row
-                result_row = result_rows[row_idx]
-
-                if feature_data is None:
-                    for feature_name in requested_features:
-                        feature_ref = (
-                            f"{table.name}__{feature_name}"
-                            if full_feature_names
-                            else feature_name
+
+        if len(grouped_refs) == 1 and timeout is None:
+            table, requested_features = grouped_refs[0]
+            return [_read_table(table, requested_features, table_entity_keys[0])]
+
+        if self._online_read_executor is None:
+            self._online_read_executor = ThreadPoolExecutor(
+                max_workers=self.config.online_read_concurrency
+            )
+        futures = [
+            self._online_read_executor.submit(
+                _read_table, table, requested_features, entity_keys
+            )
+            for (table, requested_features), entity_keys in zip(
+                grouped_refs, table_entity_keys
+            )
+        ]
+        wait(futures, timeout=timeout)
+
+        results = []
+        for future in futures:
+            if future.done():
+                results.append(future.result())
+            else:
+                future.cancel()
+                results.append(None)
+        return results
+
+    async def _online_read_tables_async(
+        self,
+        provider: Provider,
+        grouped_refs: List[Tuple[FeatureView, List[str]]],
+        table_entity_keys: List[List[EntityKeyProto]],
+        timeout: Optional[float],
+    ) -> List[
+        Optional[List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]]
+    ]:
+        """
+        Asyncio counterpart of _online_read_tables.
+        """
+        if not grouped_refs:
+            return []
+
+        tasks = [
+            asyncio.ensure_future(
+                provider.online_read_async(
+                    config=self.config,
+                    table=table,
+                    entity_keys=entity_keys,
+                    requested_features=requested_features,
+                )
+            )
+            for (table, requested_features), entity_keys in zip(
+                grouped_refs, table_entity_keys
+            )
+        ]
+        done, pending = await asyncio.wait(tasks, timeout=timeout)
+        for task in pending:
+            task.cancel()
+
+        return [task.result() if task in done else None for task in tasks]
+
+
+class _LockedRegistry:
+    """
+    Proxy of a registry that holds a lock during every call to it, so that the registry can be read from
+    materialization shards running on other threads.
+    """
+
+    def __init__(self, registry: Registry, lock: threading.Lock):
+        self._registry = registry
+        self._lock = lock
+
+    def __getattr__(self, name: str) -> Any:
+        attr = getattr(self._registry, name)
+        if not callable(attr):
+            return attr
+
+        @wraps(attr)
+        def locked(*args, **kwargs):
+            with self._lock:
+                return attr(*args, **kwargs)
+
+        return locked
+
+
+@dataclass(frozen=True)
+class _OnlineRetrievalPlan:
+    """
+    The parts of an online retrieval that only depend on the requested features and on the registry. Plans are
+    compiled once per registry version, so that requests only have to build entity keys, read from the online
+    store and assemble the response.
+    """
+
+    entity_name_to_join_key_map: Dict[str, str]
+    grouped_refs: List[Tuple[FeatureView, List[str]]]
+
+
+def _populate_result_rows(
+    result_rows: List[GetOnlineFeaturesResponse.FieldValues],
+    grouped_refs: List[Tuple[FeatureView, List[str]]],
+    read_rows_per_table: List[
+        Optional[List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]]
+    ],
+    full_feature_names: bool,
+):
+    """ Copy the feature values read for every feature view into the response rows"""
+    for (table, requested_features), read_rows in zip(
+        grouped_refs, read_rows_per_table
+    ):
+        if read_rows is None:
+            # The read didn't finish before the deadline, so none of the features of this view were found
+            read_rows = [(None, None)] * len(result_rows)
+        for row_idx, read_row in enumerate(read_rows):
+            row_ts, feature_data = read_row
+            result_row = result_rows[row_idx]
+
+            if feature_data is None:
+                for feature_name in requested_features:
+                    feature_ref = (
+                        f"{table.name}__{feature_name}"
+                        if full_feature_names
+                        else feature_name
+                    )
+                    result_row.statuses[
+                        feature_ref
+                    ] = GetOnlineFeaturesResponse.FieldStatus.NOT_FOUND
+            else:
+                for feature_name in feature_data:
+                    feature_ref = (
+                        f"{table.name}__{feature_name}"
+                        if full_feature_names
+                        else feature_name
+                    )
+                    if feature_name in requested_features:
+                        result_row.fields[feature_ref].CopyFrom(
+                            feature_data[feature_name]
                         )
                         result_row.statuses[
                             feature_ref
-                        ] = GetOnlineFeaturesResponse.FieldStatus.NOT_FOUND
-                else:
-                    for feature_name in feature_data:
-                        feature_ref = (
-                            f"{table.name}__{feature_name}"
-                            if full_feature_names
-                            else feature_name
-                        )
-                        if feature_name in requested_features:
-                            result_row.fields[feature_ref].CopyFrom(
-                                feature_data[feature_name]
-                            )
-                            result_row.statuses[
-                                feature_ref
-                            ] = GetOnlineFeaturesResponse.FieldStatus.PRESENT
-
-        return OnlineResponse(GetOnlineFeaturesResponse(field_values=result_rows))
+                        ] = GetOnlineFeaturesResponse.FieldStatus.PRESENT
 
 
 def _entity_row_to_key(row: GetOnlineFeaturesRequestV2.EntityRow) -> EntityKeyProto:
@@ -982,6 +1360,61 @@ def _print_materialization_log(
         )
 
 
+def _print_feature_view_materialization_log(
+    feature_view: FeatureView,
+    start_date: datetime,
+    end_date: datetime,
+    print_time_range: bool,
+):
+    if print_time_range:
+        print(
+            f"{Style.BRIGHT + Fore.GREEN}{feature_view.name}{Style.RESET_ALL}"
+            f" from {Style.BRIGHT + Fore.GREEN}{start_date.replace(microsecond=0).astimezone()}{Style.RESET_ALL}"
+            f" to {Style.BRIGHT + Fore.GREEN}{end_date.replace(microsecond=0).astimezone()}{Style.RESET_ALL}:"
+        )
+    else:
+        print(f"{Style.BRIGHT + Fore.GREEN}{feature_view.name}{Style.RESET_ALL}:")
+
+
+def _split_time_range(
+    start_date: datetime, end_date: datetime, shard_duration: Optional[timedelta]
+) -> List[Tuple[datetime, datetime]]:
+    """Splits [start_date, end_date) into consecutive shards of at most shard_duration."""
+    if shard_duration is None or end_date - start_date <= shard_duration:
+        return [(start_date, end_date)]
+
+    shards = []
+    shard_start = start_date
+    while shard_start < end_date:
+        shard_end = min(shard_start + shard_duration, end_date)
+        shards.append((shard_start, shard_end))
+        shard_start = shard_end
+    return shards
+
+
+def _subtract_time_ranges(
+    start_date: datetime,
+    end_date: datetime,
+    time_ranges: List[Tuple[datetime, datetime]],
+) -> List[Tuple[datetime, datetime]]:
+    """Returns the parts of [start_date, end_date) that aren't covered by any of the time ranges."""
+    remaining = []
+    current = start_date
+    for range_start, range_end in sorted(time_ranges):
+        if range_end <= current:
+            continue
+        if range_start >= end_date:
+            break
+        if range_start > current:
+            remaining.append((current, range_start))
+        current = range_end
+        if current >= end_date:
+            break
+    if current < end_date:
+        remaining.append((current, end_date))
+    return remaining
+
+
 def _validate_feature_views(feature_views: List[FeatureView]):
     """ Verify feature views have unique names"""
     name_to_fv_dict = {}
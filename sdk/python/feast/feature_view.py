@@ -73,6 +73,7 @@ class FeatureView:
     created_timestamp: Optional[datetime] = None
     last_updated_timestamp: Optional[datetime] = None
     materialization_intervals: List[Tuple[datetime, datetime]]
+    materialization_checkpoints: List[Tuple[datetime, datetime]]
 
     @log_exceptions
     def __init__(
@@ -132,6 +133,7 @@ class FeatureView:
         self.stream_source = stream_source
 
         self.materialization_intervals = []
+        self.materialization_checkpoints = []
 
         self.created_timestamp: Optional[datetime] = None
         self.last_updated_timestamp: Optional[datetime] = None
@@ -201,7 +203,9 @@ class FeatureView:
         Returns:
             A FeatureViewProto protobuf.
         """
-        meta = FeatureViewMetaProto(materialization_intervals=[])
+        meta = FeatureViewMetaProto(
+            materialization_intervals=[], materialization_checkpoints=[]
+        )
         if self.created_timestamp:
             meta.created_timestamp.FromDatetime(self.created_timestamp)
         if self.last_updated_timestamp:
@@ -211,6 +215,11 @@ class FeatureView:
             interval_proto.start_time.FromDatetime(interval[0])
             interval_proto.end_time.FromDatetime(interval[1])
             meta.materialization_intervals.append(interval_proto)
+        for checkpoint in self.materialization_checkpoints:
+            checkpoint_proto = MaterializationIntervalProto()
+            checkpoint_proto.start_time.FromDatetime(checkpoint[0])
+            checkpoint_proto.end_time.FromDatetime(checkpoint[1])
+            meta.materialization_checkpoints.append(checkpoint_proto)
 
         ttl_duration = None
         if self.ttl is not None:
@@ -294,6 +303,13 @@ class FeatureView:
                     utils.make_tzaware(interval.end_time.ToDatetime()),
                 )
             )
+        for checkpoint in feature_view_proto.meta.materialization_checkpoints:
+            feature_view.materialization_checkpoints.append(
+                (
+                    utils.make_tzaware(checkpoint.start_time.ToDatetime()),
+                    utils.make_tzaware(checkpoint.end_time.ToDatetime()),
+                )
+            )
 
         return feature_view
 
@@ -323,6 +339,7 @@ class FeatureView:
             columns_to_exclude = {
                 self.batch_source.event_timestamp_column,
                 self.batch_source.created_timestamp_column,
+                self.batch_source.date_partition_column,
             } | set(self.entities)
 
             for (
@@ -8,13 +8,13 @@ from feast import FeatureTable
 from feast.entity import Entity
 from feast.feature_view import FeatureView
 from feast.infra.offline_stores.offline_utils import get_offline_store_from_config
+from feast.infra.online_stores.cached import CachedOnlineStore
 from feast.infra.online_stores.helpers import get_online_store_from_config
 from feast.infra.provider import (
     Provider,
     RetrievalJob,
-    _convert_arrow_to_proto,
     _get_column_names,
-    _run_field_mapping,
+    _write_retrieval_job_to_online_store,
 )
 from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
 from feast.protos.feast.types.Value_pb2 import Value as ValueProto
@@ -27,6 +27,10 @@ class AwsProvider(Provider):
         self.repo_config = config
         self.offline_store = get_offline_store_from_config(config.offline_store)
         self.online_store = get_online_store_from_config(config.online_store)
+        if config.online_cache is not None:
+            self.online_store = CachedOnlineStore(
+                self.online_store, config.online_cache
+            )
 
     def update_infra(
         self,
@@ -72,10 +76,23 @@ class AwsProvider(Provider):
         entity_keys: List[EntityKeyProto],
         requested_features: List[str] = None,
     ) -> List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]:
-        result = self.online_store.online_read(config, table, entity_keys)
+        result = self.online_store.online_read(
+            config, table, entity_keys, requested_features
+        )
 
         return result
 
+    async def online_read_async(
+        self,
+        config: RepoConfig,
+        table: Union[FeatureTable, FeatureView],
+        entity_keys: List[EntityKeyProto],
+        requested_features: List[str] = None,
+    ) -> List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]:
+        return await self.online_store.online_read_async(
+            config, table, entity_keys, requested_features
+        )
+
     def materialize_single_feature_view(
         self,
         config: RepoConfig,
@@ -87,8 +104,9 @@ class AwsProvider(Provider):
         tqdm_builder: Callable[[int], tqdm],
     ) -> None:
         entities = []
+        project_objects = registry.get_project_objects(project)
         for entity_name in feature_view.entities:
-            entities.append(registry.get_entity(entity_name, project))
+            entities.append(project_objects.get_entity(entity_name))
 
         (
             join_key_columns,
@@ -108,18 +126,10 @@ class AwsProvider(Provider):
             end_date=end_date,
         )
 
-        table = offline_job.to_arrow()
-
-        if feature_view.batch_source.field_mapping is not None:
-            table = _run_field_mapping(table, feature_view.batch_source.field_mapping)
-
         join_keys = [entity.join_key for entity in entities]
-        rows_to_write = _convert_arrow_to_proto(table, feature_view, join_keys)
-
-        with tqdm_builder(len(rows_to_write)) as pbar:
-            self.online_write_batch(
-                self.repo_config, feature_view, rows_to_write, lambda x: pbar.update(x)
-            )
+        _write_retrieval_job_to_online_store(
+            self, self.repo_config, feature_view, offline_job, join_keys, tqdm_builder
+        )
 
     def get_historical_features(
         self,
@@ -1,6 +1,6 @@
 import uuid
 from datetime import date, datetime, timedelta
-from typing import Dict, List, Optional, Union
+from typing import Dict, Iterator, List, Optional, Union
 
 import numpy as np
 import pandas
@@ -147,10 +147,11 @@ class BigQueryRetrievalJob(RetrievalJob):
         self.query = query
         self.client = client
         self.config = config
+        self._query_job: Optional[bigquery.job.query.QueryJob] = None
 
     def to_df(self):
         # TODO: Ideally only start this job when the user runs "get_historical_features", not when they run to_df()
-        df = self.client.query(self.query).to_dataframe(create_bqstorage_client=True)
+        df = self._get_query_job().to_dataframe(create_bqstorage_client=True)
         return df
 
     def to_sql(self) -> str:
@@ -198,7 +199,23 @@ class BigQueryRetrievalJob(RetrievalJob):
         return str(job_config.destination)
 
     def to_arrow(self) -> pyarrow.Table:
-        return self.client.query(self.query).to_arrow()
+        return self._get_query_job().to_arrow(create_bqstorage_client=True)
+
+    def to_arrow_batches(
+        self, batch_size: Optional[int] = None
+    ) -> Iterator[pyarrow.RecordBatch]:
+        rows = self._get_query_job().result(page_size=batch_size)
+        if not hasattr(rows, "to_arrow_iterable"):
+            # Older versions of google-cloud-bigquery can only download the whole results at once
+            return iter(rows.to_arrow().to_batches(max_chunksize=batch_size))
+        return offline_utils.split_arrow_batches(rows.to_arrow_iterable(), batch_size)
+
+    def _get_query_job(self) -> bigquery.job.query.QueryJob:
+        # The query only runs once: its results are cached by BigQuery in a temporary table, which later calls read
+        # instead of running the query again.
+        if self._query_job is None:
+            self._query_job = self.client.query(self.query)
+        return self._query_job
 
 
 def block_until_done(
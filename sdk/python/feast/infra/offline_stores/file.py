@@ -1,18 +1,21 @@
-from datetime import datetime
-from typing import Callable, List, Optional, Union
+from datetime import datetime, timedelta
+from typing import Callable, Iterator, List, Optional, Union
 
 import pandas as pd
 import pyarrow
+import pyarrow.dataset
 import pytz
+from pydantic import StrictStr
 from pydantic.typing import Literal
 
-from feast import FileSource
+from feast import FileSource, utils
 from feast.data_source import DataSource
 from feast.errors import FeastJoinKeysDuringMaterialization
 from feast.feature_view import FeatureView
 from feast.infra.offline_stores.offline_store import OfflineStore, RetrievalJob
 from feast.infra.offline_stores.offline_utils import (
     DEFAULT_ENTITY_DF_EVENT_TIMESTAMP_COL,
+    get_entity_df_timestamp_bounds,
 )
 from feast.infra.provider import (
     _get_requested_feature_views_to_features_dict,
@@ -28,23 +31,61 @@ class FileOfflineStoreConfig(FeastConfigBaseModel):
     type: Literal["file"] = "file"
     """ Offline store type selector"""
 
+    engine: Literal["pandas", "duckdb"] = "pandas"
+    """ Engine running the point-in-time joins of historical retrievals. The pandas engine loads all feature
+    data in memory, while the duckdb engine joins out of core on all cores (requires the duckdb extra) """
+
+    duckdb_memory_limit: Optional[StrictStr] = None
+    """ (optional) Memory limit of the duckdb engine, e.g. 16GB. Defaults to 80% of the system memory """
+
+    duckdb_temp_directory: Optional[StrictStr] = None
+    """ (optional) Directory the duckdb engine spills to when the joins exceed its memory limit """
+
 
 class FileRetrievalJob(RetrievalJob):
     def __init__(self, evaluation_function: Callable):
         """Initialize a lazy historical retrieval job"""
 
-        # The evaluation function executes a stored procedure to compute a historical retrieval.
+        # The evaluation function executes a stored procedure to compute a historical retrieval. It returns either a
+        # pandas DataFrame or a pyarrow Table, depending on the engine.
         self.evaluation_function = evaluation_function
+        self._result: Optional[Union[pd.DataFrame, pyarrow.Table]] = None
+        self._table: Optional[pyarrow.Table] = None
 
     def to_df(self):
-        # Only execute the evaluation function to build the final historical retrieval dataframe at the last moment.
-        df = self.evaluation_function()
-        return df
+        result = self._evaluate()
+        if isinstance(result, pyarrow.Table):
+            return result.to_pandas()
+        return result
 
     def to_arrow(self):
-        # Only execute the evaluation function to build the final historical retrieval dataframe at the last moment.
-        df = self.evaluation_function()
-        return pyarrow.Table.from_pandas(df)
+        if self._table is None:
+            result = self._evaluate()
+            self._table = (
+                result
+                if isinstance(result, pyarrow.Table)
+                else pyarrow.Table.from_pandas(result)
+            )
+        return self._table
+
+    def to_arrow_batches(
+        self, batch_size: Optional[int] = None
+    ) -> Iterator[pyarrow.RecordBatch]:
+        if self._table is not None:
+            return iter(self._table.to_batches(max_chunksize=batch_size))
+        result = self._evaluate()
+        if isinstance(result, pyarrow.Table):
+            return iter(result.to_batches(max_chunksize=batch_size))
+        # Results of the pandas engine are converted one batch at a time, instead of building a whole Arrow table
+        # next to the DataFrame
+        return _dataframe_to_batches(result, batch_size)
+
+    def _evaluate(self) -> Union[pd.DataFrame, pyarrow.Table]:
+        # Only execute the evaluation function to build the final historical retrieval at the last moment, and only
+        # once: to_df and to_arrow reuse its result.
+        if self._result is None:
+            self._result = self.evaluation_function()
+        return self._result
 
 
 class FileOfflineStore(OfflineStore):
@@ -80,6 +121,22 @@ class FileOfflineStore(OfflineStore):
             feature_refs, feature_views
         )
 
+        if config.offline_store.engine == "duckdb":
+            from feast.infra.offline_stores import file_duckdb
+
+            return FileRetrievalJob(
+                evaluation_function=file_duckdb.get_historical_features_evaluation_function(
+                    memory_limit=config.offline_store.duckdb_memory_limit,
+                    temp_directory=config.offline_store.duckdb_temp_directory,
+                    feature_views_to_features=feature_views_to_features,
+                    entity_df=entity_df,
+                    entity_df_event_timestamp_col=entity_df_event_timestamp_col,
+                    registry=registry,
+                    project=project,
+                    full_feature_names=full_feature_names,
+                )
+            )
+
         # Create lazy function that is only called from the RetrievalJob object
         def evaluate_historical_retrieval():
 
@@ -102,7 +159,15 @@ class FileOfflineStore(OfflineStore):
                 entity_df_event_timestamp_col
             )
 
+            (
+                entity_df_event_timestamp_min,
+                entity_df_event_timestamp_max,
+            ) = get_entity_df_timestamp_bounds(
+                entity_df_with_features, entity_df_event_timestamp_col
+            )
+
             # Load feature view data from sources and join them incrementally
+            project_objects = registry.get_project_objects(project)
             for feature_view, features in feature_views_to_features.items():
                 event_timestamp_column = (
                     feature_view.batch_source.event_timestamp_column
@@ -111,8 +176,28 @@ class FileOfflineStore(OfflineStore):
                     feature_view.batch_source.created_timestamp_column
                 )
 
-                # Read offline parquet data in pyarrow format.
-                table = pyarrow.parquet.read_table(feature_view.batch_source.path)
+                # Build a list of entity columns to join on (from the right table)
+                join_keys = []
+                for entity_name in feature_view.entities:
+                    entity = project_objects.get_entity(entity_name)
+                    join_keys.append(entity.join_key)
+
+                # Read offline parquet data in pyarrow format. Only the rows that can be joined to entity_df are
+                # read, i.e. the ones within its time range (less the ttl) and with join keys present in it.
+                dataset = feature_view.batch_source.to_dataset()
+                table = dataset.to_table(
+                    columns=_feature_view_source_columns(
+                        feature_view, join_keys, features
+                    ),
+                    filter=_entity_df_pruning_filter(
+                        feature_view,
+                        dataset,
+                        join_keys,
+                        entity_df_with_features,
+                        entity_df_event_timestamp_min,
+                        entity_df_event_timestamp_max,
+                    ),
+                )
 
                 # Rename columns by the field mapping dictionary if it exists
                 if feature_view.batch_source.field_mapping is not None:
@@ -128,18 +213,12 @@ class FileOfflineStore(OfflineStore):
                 df_to_join = table.to_pandas()
 
                 # Make sure all timestamp fields are tz-aware. We default tz-naive fields to UTC
-                df_to_join[event_timestamp_column] = df_to_join[
-                    event_timestamp_column
-                ].apply(
-                    lambda x: x if x.tzinfo is not None else x.replace(tzinfo=pytz.utc)
+                df_to_join[event_timestamp_column] = pd.to_datetime(
+                    df_to_join[event_timestamp_column], utc=True
                 )
                 if created_timestamp_column:
-                    df_to_join[created_timestamp_column] = df_to_join[
-                        created_timestamp_column
-                    ].apply(
-                        lambda x: x
-                        if x.tzinfo is not None
-                        else x.replace(tzinfo=pytz.utc)
+                    df_to_join[created_timestamp_column] = pd.to_datetime(
+                        df_to_join[created_timestamp_column], utc=True
                     )
 
                 # Sort dataframe by the event timestamp column
@@ -163,11 +242,6 @@ class FileOfflineStore(OfflineStore):
                         columns={feature: formatted_feature_name}, inplace=True,
                     )
 
-                # Build a list of entity columns to join on (from the right table)
-                join_keys = []
-                for entity_name in feature_view.entities:
-                    entity = registry.get_entity(entity_name, project)
-                    join_keys.append(entity.join_key)
                 right_entity_columns = join_keys
                 right_entity_key_columns = [
                     event_timestamp_column
@@ -238,19 +312,9 @@ class FileOfflineStore(OfflineStore):
 
         # Create lazy function that is only called from the RetrievalJob object
         def evaluate_offline_job():
-            source_df = pd.read_parquet(data_source.path)
-            # Make sure all timestamp fields are tz-aware. We default tz-naive fields to UTC
-            source_df[event_timestamp_column] = source_df[event_timestamp_column].apply(
-                lambda x: x if x.tzinfo is not None else x.replace(tzinfo=pytz.utc)
-            )
-            if created_timestamp_column:
-                source_df[created_timestamp_column] = source_df[
-                    created_timestamp_column
-                ].apply(
-                    lambda x: x if x.tzinfo is not None else x.replace(tzinfo=pytz.utc)
-                )
+            dataset = data_source.to_dataset()
 
-            source_columns = set(source_df.columns)
+            source_columns = set(dataset.schema.names)
             if not set(join_key_columns).issubset(source_columns):
                 raise FeastJoinKeysDuringMaterialization(
                     data_source.path, set(join_key_columns), source_columns
@@ -261,20 +325,153 @@ class FileOfflineStore(OfflineStore):
                 if created_timestamp_column
                 else [event_timestamp_column]
             )
+            columns_to_extract = list(
+                dict.fromkeys(join_key_columns + feature_name_columns + ts_columns)
+            )
 
-            source_df.sort_values(by=ts_columns, inplace=True)
+            # Only read the needed columns, and skip the partitions and row groups outside of the time range
+            table = dataset.to_table(
+                columns=columns_to_extract,
+                filter=_combine_filters(
+                    data_source.date_partition_filter(dataset, start_date, end_date),
+                    _timestamp_range_filter(
+                        dataset.schema, event_timestamp_column, start_date, end_date
+                    ),
+                ),
+            )
+            source_df = table.to_pandas()
+
+            # Make sure all timestamp fields are tz-aware. We default tz-naive fields to UTC
+            for ts_column in ts_columns:
+                source_df[ts_column] = pd.to_datetime(source_df[ts_column], utc=True)
 
             filtered_df = source_df[
                 (source_df[event_timestamp_column] >= start_date)
                 & (source_df[event_timestamp_column] < end_date)
             ]
+            filtered_df = filtered_df.sort_values(by=ts_columns)
             last_values_df = filtered_df.drop_duplicates(
                 join_key_columns, keep="last", ignore_index=True
             )
-
-            columns_to_extract = set(
-                join_key_columns + feature_name_columns + ts_columns
-            )
             return last_values_df[columns_to_extract]
 
         return FileRetrievalJob(evaluation_function=evaluate_offline_job)
+
+
+def _dataframe_to_batches(
+    df: pd.DataFrame, batch_size: Optional[int]
+) -> Iterator[pyarrow.RecordBatch]:
+    # The schema is inferred from the whole DataFrame, so that all batches share it even if a column is empty in
+    # some of them
+    schema = pyarrow.Schema.from_pandas(df, preserve_index=False)
+    step = batch_size or max(len(df), 1)
+    for start in range(0, len(df), step):
+        yield pyarrow.RecordBatch.from_pandas(
+            df.iloc[start : start + step], schema=schema, preserve_index=False
+        )
+
+
+def _combine_filters(
+    *filters: Optional[pyarrow.dataset.Expression],
+) -> Optional[pyarrow.dataset.Expression]:
+    combined_filter = None
+    for dataset_filter in filters:
+        if dataset_filter is None:
+            continue
+        if combined_filter is None:
+            combined_filter = dataset_filter
+        else:
+            combined_filter = combined_filter & dataset_filter
+    return combined_filter
+
+
+def _feature_view_source_columns(
+    feature_view: FeatureView, join_keys: List[str], features: List[str]
+) -> List[str]:
+    """Returns the columns of the source of a feature view needed to join the given features."""
+    batch_source = feature_view.batch_source
+    reverse_field_mapping = {
+        v: k for k, v in (batch_source.field_mapping or {}).items()
+    }
+    columns = join_keys + [batch_source.event_timestamp_column]
+    if batch_source.created_timestamp_column:
+        columns.append(batch_source.created_timestamp_column)
+    columns += [reverse_field_mapping.get(feature, feature) for feature in features]
+    return list(dict.fromkeys(columns))
+
+
+def _entity_df_pruning_filter(
+    feature_view: FeatureView,
+    dataset: pyarrow.dataset.Dataset,
+    join_keys: List[str],
+    entity_df: pd.DataFrame,
+    entity_df_event_timestamp_min: datetime,
+    entity_df_event_timestamp_max: datetime,
+) -> Optional[pyarrow.dataset.Expression]:
+    """
+    Builds a dataset filter skipping the feature rows that can't be joined to any row of entity_df: the ones
+    later than its last event timestamp or older than its first one less the ttl, and the ones with join key
+    values that aren't in entity_df. Every join key is filtered on its own, so the filter keeps a superset of the
+    joinable rows and the point-in-time join still decides which rows are actually joined.
+    """
+    if entity_df.empty:
+        return None
+
+    batch_source = feature_view.batch_source
+    # Timestamps are truncated to microseconds here, so both ends are widened to keep the range inclusive
+    start_date = (
+        entity_df_event_timestamp_min.to_pydatetime() - feature_view.ttl
+        if feature_view.ttl
+        else None
+    )
+    end_date = entity_df_event_timestamp_max.to_pydatetime() + timedelta(microseconds=1)
+    filters = [
+        batch_source.date_partition_filter(dataset, start_date, end_date),
+        _timestamp_range_filter(
+            dataset.schema, batch_source.event_timestamp_column, start_date, end_date
+        ),
+    ]
+
+    for join_key in join_keys:
+        if join_key not in dataset.schema.names:
+            continue
+        try:
+            join_key_values = pyarrow.array(
+                entity_df[join_key].dropna().unique(), from_pandas=True
+            ).cast(dataset.schema.field(join_key).type)
+        except (pyarrow.ArrowInvalid, pyarrow.ArrowNotImplementedError):
+            # The join keys are compared after reading the rows if their types differ between entity_df and
+            # the source
+            continue
+        filters.append(pyarrow.dataset.field(join_key).isin(join_key_values))
+
+    return _combine_filters(*filters)
+
+
+def _timestamp_range_filter(
+    schema: pyarrow.Schema,
+    timestamp_column: str,
+    start_date: Optional[datetime],
+    end_date: datetime,
+) -> Optional[pyarrow.dataset.Expression]:
+    """
+    Builds a dataset filter for rows with a timestamp in [start_date, end_date), where a start_date of None
+    leaves the range open at the start. Returns None if the column isn't stored as a timestamp, in which case
+    the rows are only filtered after reading them.
+    """
+    timestamp_type = schema.field(timestamp_column).type
+    if not pyarrow.types.is_timestamp(timestamp_type):
+        return None
+
+    def to_scalar(date: datetime) -> pyarrow.Scalar:
+        date = utils.make_tzaware(date).astimezone(pytz.utc)
+        if timestamp_type.tz is None:
+            # Timestamps without a time zone are assumed to be in UTC
+            date = date.replace(tzinfo=None)
+        return pyarrow.scalar(date, type=timestamp_type)
+
+    timestamp_field = pyarrow.dataset.field(timestamp_column)
+    timestamp_filter = timestamp_field < to_scalar(end_date)
+    if start_date is not None:
+        timestamp_filter = (timestamp_field >= to_scalar(start_date)) & timestamp_filter
+    return timestamp_filter
@@ -0,0 +1,222 @@
+from datetime import timedelta
+from typing import Callable, Dict, List, Optional
+
+import pandas as pd
+import pyarrow
+
+from feast.feature_view import FeatureView
+from feast.registry import Registry
+
+try:
+    import duckdb
+
+except ImportError as e:
+    from feast.errors import FeastExtrasDependencyImportError
+
+    raise FeastExtrasDependencyImportError("duckdb", str(e))
+
+
+ENTITY_ROW_ID_COLUMN = "__feast_entity_row_id"
+FEATURE_TIMESTAMP_COLUMN = "__feast_event_timestamp"
+
+
+def get_historical_features_evaluation_function(
+    memory_limit: Optional[str],
+    temp_directory: Optional[str],
+    feature_views_to_features: Dict[FeatureView, List[str]],
+    entity_df: pd.DataFrame,
+    entity_df_event_timestamp_col: str,
+    registry: Registry,
+    project: str,
+    full_feature_names: bool,
+) -> Callable[[], pyarrow.Table]:
+    """
+    Builds the evaluation function of a historical retrieval that runs the point-in-time joins in DuckDB. The
+    feature view sources are scanned as Arrow datasets, and DuckDB spills to temp_directory whenever the joins
+    don't fit in memory_limit, using all cores. The results are returned as a pyarrow Table, without going
+    through pandas.
+
+    The results are the same as the ones of the pandas engine: every entity row gets the latest feature row
+    with the same join keys that isn't later than the entity timestamp nor older than the ttl of the feature
+    view, and feature rows with the same join keys and event timestamp are deduplicated on the created timestamp.
+    """
+
+    def evaluate_historical_retrieval():
+        connection = duckdb.connect()
+        # Sources with time zone aware timestamps are cast to naive timestamps in the session time zone, which
+        # defaults to the one of the host
+        connection.execute("SET TimeZone='UTC'")
+        if memory_limit:
+            connection.execute(f"SET memory_limit={_quote_literal(memory_limit)}")
+        if temp_directory:
+            connection.execute(f"SET temp_directory={_quote_literal(temp_directory)}")
+
+        # Timestamps are all compared as naive UTC timestamps inside DuckDB
+        entity_df_to_join = entity_df.copy()
+        entity_df_to_join[entity_df_event_timestamp_col] = pd.to_datetime(
+            entity_df_to_join[entity_df_event_timestamp_col], utc=True
+        ).dt.tz_localize(None)
+        entity_columns = list(entity_df_to_join.columns)
+        entity_df_to_join[ENTITY_ROW_ID_COLUMN] = range(len(entity_df_to_join))
+        connection.register("feast_entity_df", entity_df_to_join)
+
+        ctes = []
+        select_columns = [f"entity_df.{_quote(column)}" for column in entity_columns]
+        joins = []
+        feature_views = list(feature_views_to_features.items())
+        project_objects = registry.get_project_objects(project)
+        for i, (feature_view, features) in enumerate(feature_views):
+            source_name = f"feast_feature_view_{i}"
+            connection.register(source_name, feature_view.batch_source.to_dataset())
+
+            join_keys = [
+                project_objects.get_entity(entity_name).join_key
+                for entity_name in feature_view.entities
+            ]
+            feature_columns = {
+                feature: f"{feature_view.name}__{feature}"
+                if full_feature_names
+                else feature
+                for feature in features
+            }
+
+            ctes.append(
+                _feature_view_cte(
+                    source_name,
+                    feature_view,
+                    join_keys,
+                    feature_columns,
+                    entity_df_event_timestamp_col,
+                )
+            )
+            joins.append(
+                f"ASOF LEFT JOIN {source_name}_deduped AS fv_{i} ON "
+                + " AND ".join(
+                    f"entity_df.{_quote(join_key)} = fv_{i}.{_quote(join_key)}"
+                    for join_key in join_keys
+                )
+                + f" AND entity_df.{_quote(entity_df_event_timestamp_col)}"
+                f" >= fv_{i}.{FEATURE_TIMESTAMP_COLUMN}"
+            )
+            for feature_column in feature_columns.values():
+                select_columns.append(
+                    _select_within_ttl(
+                        f"fv_{i}",
+                        feature_column,
+                        entity_df_event_timestamp_col,
+                        feature_view.ttl,
+                    )
+                )
+
+        query = (
+            "WITH "
+            + ",\n".join(ctes)
+            + "\nSELECT "
+            + ", ".join(select_columns)
+            + "\nFROM feast_entity_df AS entity_df\n"
+            + "\n".join(joins)
+            + f"\nORDER BY entity_df.{_quote(entity_df_event_timestamp_col)},"
+            f" entity_df.{ENTITY_ROW_ID_COLUMN}"
+        )
+        table = connection.execute(query).arrow()
+        connection.close()
+
+        # Move "event_timestamp" column to front, as a UTC timestamp
+        columns = [entity_df_event_timestamp_col] + [
+            column
+            for column in table.column_names
+            if column != entity_df_event_timestamp_col
+        ]
+        arrays = [table.column(column) for column in columns]
+        arrays[0] = arrays[0].cast(pyarrow.timestamp("us", tz="UTC"))
+        return pyarrow.Table.from_arrays(arrays, names=columns)
+
+    return evaluate_historical_retrieval
+
+
+def _feature_view_cte(
+    source_name: str,
+    feature_view: FeatureView,
+    join_keys: List[str],
+    feature_columns: Dict[str, str],
+    entity_df_event_timestamp_col: str,
+) -> str:
+    """
+    Builds the CTE selecting the rows of a feature view source, keeping a single row per join keys and event
+    timestamp, i.e. the one with the latest created timestamp. Rows that can't be joined to any entity row, either
+    because of their event timestamp or their join keys, are skipped before deduplicating them.
+    """
+    batch_source = feature_view.batch_source
+    reverse_field_mapping = {v: k for k, v in batch_source.field_mapping.items()}
+    event_timestamp_column = _quote(batch_source.event_timestamp_column)
+    partition_by = ", ".join(
+        [_quote(join_key) for join_key in join_keys] + [event_timestamp_column]
+    )
+    order_by = (
+        f" ORDER BY {_quote(batch_source.created_timestamp_column)} DESC"
+        if batch_source.created_timestamp_column
+        else ""
+    )
+
+    columns = [_quote(join_key) for join_key in join_keys]
+    columns.append(
+        f"CAST({event_timestamp_column} AS TIMESTAMP) AS {FEATURE_TIMESTAMP_COLUMN}"
+    )
+    for feature, feature_column in feature_columns.items():
+        source_column = reverse_field_mapping.get(feature, feature)
+        columns.append(f"{_quote(source_column)} AS {_quote(feature_column)}")
+
+    entity_df_event_timestamp = _quote(entity_df_event_timestamp_col)
+    conditions = [
+        f"CAST({event_timestamp_column} AS TIMESTAMP)"
+        f" <= (SELECT MAX({entity_df_event_timestamp}) FROM feast_entity_df)"
+    ]
+    if feature_view.ttl:
+        conditions.append(
+            f"CAST({event_timestamp_column} AS TIMESTAMP)"
+            f" >= (SELECT MIN({entity_df_event_timestamp}) FROM feast_entity_df)"
+            f" - {_interval(feature_view.ttl)}"
+        )
+    for join_key in join_keys:
+        conditions.append(
+            f"{_quote(join_key)} IN (SELECT {_quote(join_key)} FROM feast_entity_df)"
+        )
+
+    return (
+        f"{source_name}_deduped AS (\n"
+        f"    SELECT {', '.join(columns)}\n"
+        f"    FROM {source_name}\n"
+        f"    WHERE {' AND '.join(conditions)}\n"
+        f"    QUALIFY ROW_NUMBER() OVER (PARTITION BY {partition_by}{order_by}) = 1\n"
+        f")"
+    )
+
+
+def _select_within_ttl(
+    feature_view_alias: str,
+    feature_column: str,
+    entity_df_event_timestamp_col: str,
+    ttl: Optional[timedelta],
+) -> str:
+    """Selects a feature column, leaving it empty if the joined row is older than the ttl."""
+    column = f"{feature_view_alias}.{_quote(feature_column)}"
+    if not ttl:
+        return f"{column} AS {_quote(feature_column)}"
+
+    return (
+        f"CASE WHEN {feature_view_alias}.{FEATURE_TIMESTAMP_COLUMN}"
+        f" >= entity_df.{_quote(entity_df_event_timestamp_col)} - {_interval(ttl)}"
+        f" THEN {column} END AS {_quote(feature_column)}"
+    )
+
+
+def _interval(duration: timedelta) -> str:
+    return f"INTERVAL '{int(duration / timedelta(microseconds=1))} microseconds'"
+
+
+def _quote(identifier: str) -> str:
+    return '"' + identifier.replace('"', '""') + '"'
+
+
+def _quote_literal(value: str) -> str:
+    return "'" + value.replace("'", "''") + "'"
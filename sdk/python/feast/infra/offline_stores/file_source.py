@@ -1,6 +1,11 @@
+import glob
+import os
+from datetime import datetime
 from typing import Callable, Dict, Iterable, Optional, Tuple
 
-from pyarrow.parquet import ParquetFile
+import pyarrow
+import pyarrow.dataset
+import pytz
 
 from feast import type_map
 from feast.data_format import FileFormat
@@ -26,13 +31,16 @@ class FileSource(DataSource):
         Args:
 
             path: File path to file containing feature data. Must contain an event_timestamp column, entity columns and
-                feature columns.
+                feature columns. Can also be a directory of parquet files, optionally partitioned Hive-style (e.g.
+                date=2021-01-01/), or a glob pattern matching several parquet files.
             event_timestamp_column: Event timestamp column used for point in time joins of feature values.
             created_timestamp_column (optional): Timestamp column when row was created, used for deduplicating rows.
             file_url: [Deprecated] Please see path
             file_format (optional): Explicitly set the file format. Allows Feast to bypass inferring the file format.
             field_mapping: A dictionary mapping of column names in this data source to feature names in a feature table
                 or view. Only used for feature columns, not entities or timestamp columns.
+            date_partition_column (optional): Hive partition key holding the date of the event timestamps of each
+                partition. Used to skip the partitions outside of the requested time range.
 
         Examples:
             >>> from feast import FileSource
@@ -128,9 +136,71 @@ class FileSource(DataSource):
     def get_table_column_names_and_types(
         self, config: RepoConfig
     ) -> Iterable[Tuple[str, str]]:
-        schema = ParquetFile(self.path).schema_arrow
+        schema = self.to_dataset().schema
         return zip(schema.names, map(str, schema.types))
 
+    def to_dataset(self) -> pyarrow.dataset.Dataset:
+        """
+        Returns the parquet data of this source as a pyarrow dataset, which is read lazily and in parallel.
+        Hive partition keys of the path are exposed as columns of the dataset.
+        """
+        path = self.path
+        if not any(char in path for char in "*?["):
+            return pyarrow.dataset.dataset(path, format="parquet", partitioning="hive")
+
+        # pyarrow doesn't expand glob patterns, so the matching files are listed here. Partition keys are
+        # parsed from the part of their paths that follows the fixed prefix of the pattern.
+        files = sorted(glob.glob(path, recursive=True))
+        if not files:
+            raise FileNotFoundError(f"No files match the FileSource path {path}")
+        glob_start = min(path.index(char) for char in "*?[" if char in path)
+        base_dir = os.path.dirname(path[:glob_start])
+        return pyarrow.dataset.dataset(
+            files,
+            format="parquet",
+            partitioning="hive",
+            partition_base_dir=base_dir,
+        )
+
+    def date_partition_filter(
+        self,
+        dataset: pyarrow.dataset.Dataset,
+        start_date: Optional[datetime],
+        end_date: datetime,
+    ) -> Optional[pyarrow.dataset.Expression]:
+        """
+        Builds a filter selecting the partitions that can hold events in [start_date, end_date], using the
+        date_partition_column of this source. Partitions outside of the range are pruned before any of their
+        files are opened. Returns None if the dataset isn't partitioned by that column.
+
+        Args:
+            dataset: The dataset of this source, as returned by to_dataset
+            start_date: Start of the time range, tz-aware. None leaves the range open at the start
+            end_date: End of the time range, tz-aware
+        """
+        if (
+            not self.date_partition_column
+            or self.date_partition_column not in dataset.schema.names
+        ):
+            return None
+
+        partition_type = dataset.schema.field(self.date_partition_column).type
+        if not (
+            pyarrow.types.is_string(partition_type)
+            or pyarrow.types.is_date(partition_type)
+        ):
+            return None
+
+        partition_field = pyarrow.dataset.field(self.date_partition_column)
+        partition_filter = partition_field <= _date_partition_value(
+            end_date, partition_type
+        )
+        if start_date is not None:
+            partition_filter = partition_filter & (
+                partition_field >= _date_partition_value(start_date, partition_type)
+            )
+        return partition_filter
+
 
 class FileOptions:
     """
@@ -204,3 +274,13 @@ class FileOptions:
         )
 
         return file_options_proto
+
+
+def _date_partition_value(
+    date: datetime, partition_type: pyarrow.DataType
+) -> pyarrow.Scalar:
+    day = date.astimezone(pytz.utc).date()
+    if pyarrow.types.is_string(partition_type):
+        # Partition values such as 2021-01-01 sort in the same order as the dates they represent
+        return pyarrow.scalar(day.isoformat(), type=partition_type)
+    return pyarrow.scalar(day, type=partition_type)
@@ -13,10 +13,11 @@
 # limitations under the License.
 from abc import ABC, abstractmethod
 from datetime import datetime
-from typing import List, Optional, Union
+from typing import Iterator, List, Optional, Union
 
 import pandas as pd
 import pyarrow
+import pyarrow.parquet
 
 from feast.data_source import DataSource
 from feast.feature_view import FeatureView
@@ -37,6 +38,34 @@ class RetrievalJob(ABC):
         """Return dataset as pyarrow Table synchronously"""
         pass
 
+    def to_arrow_batches(
+        self, batch_size: Optional[int] = None
+    ) -> Iterator[pyarrow.RecordBatch]:
+        """
+        Return dataset as an iterator of pyarrow RecordBatches of at most batch_size rows. Offline stores that
+        can read their results incrementally should override this, by default the whole Table is loaded first.
+        """
+        return iter(self.to_arrow().to_batches(max_chunksize=batch_size))
+
+    def to_parquet(self, path: str, batch_size: Optional[int] = None):
+        """
+        Write dataset to a Parquet file at path, one RecordBatch of at most batch_size rows at a time, so that
+        only a single batch is held in memory by offline stores reading their results incrementally.
+        """
+        writer = None
+        try:
+            for batch in self.to_arrow_batches(batch_size):
+                if writer is None:
+                    writer = pyarrow.parquet.ParquetWriter(path, batch.schema)
+                writer.write_table(pyarrow.Table.from_batches([batch]))
+        finally:
+            if writer is not None:
+                writer.close()
+
+        if writer is None:
+            # The schema of an empty dataset isn't known without batches, so it's written as a Table instead
+            pyarrow.parquet.write_table(self.to_arrow(), path)
+
 
 class OfflineStore(ABC):
     """
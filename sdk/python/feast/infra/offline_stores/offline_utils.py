@@ -2,10 +2,11 @@ import importlib
 import uuid
 from dataclasses import asdict, dataclass
 from datetime import timedelta
-from typing import Any, Dict, List, Optional, Set, Tuple
+from typing import Any, Dict, Iterable, Iterator, List, Optional, Set, Tuple
 
 import numpy as np
 import pandas as pd
+import pyarrow
 from jinja2 import BaseLoader, Environment
 from pandas import Timestamp
 
@@ -59,14 +60,27 @@ def get_expected_join_keys(
     project: str, feature_views: List["feast.FeatureView"], registry: Registry
 ) -> Set[str]:
     join_keys = set()
+    project_objects = registry.get_project_objects(project)
     for feature_view in feature_views:
         entities = feature_view.entities
         for entity_name in entities:
-            entity = registry.get_entity(entity_name, project)
+            entity = project_objects.get_entity(entity_name)
             join_keys.add(entity.join_key)
     return join_keys
 
 
+def split_arrow_batches(
+    batches: Iterable[pyarrow.RecordBatch], batch_size: Optional[int]
+) -> Iterator[pyarrow.RecordBatch]:
+    """Splits the RecordBatches with more than batch_size rows, without copying them."""
+    for batch in batches:
+        if batch_size is None or batch.num_rows <= batch_size:
+            yield batch
+            continue
+        for offset in range(0, batch.num_rows, batch_size):
+            yield batch.slice(offset, batch_size)
+
+
 def get_entity_df_timestamp_bounds(
     entity_df: pd.DataFrame, event_timestamp_col: str
 ) -> Tuple[Timestamp, Timestamp]:
@@ -101,6 +115,7 @@ def get_feature_view_query_context(
     )
 
     query_context = []
+    project_objects = registry.get_project_objects(project)
     for feature_view, features in feature_views_to_feature_map.items():
         join_keys = []
         entity_selections = []
@@ -108,7 +123,7 @@ def get_feature_view_query_context(
             v: k for k, v in feature_view.input.field_mapping.items()
         }
         for entity_name in feature_view.entities:
-            entity = registry.get_entity(entity_name, project)
+            entity = project_objects.get_entity(entity_name)
             join_keys.append(entity.join_key)
             join_key_column = reverse_field_mapping.get(
                 entity.join_key, entity.join_key
@@ -210,34 +210,53 @@ class RedshiftRetrievalJob(RetrievalJob):
             + str(uuid.uuid4())
         )
         self._drop_columns = drop_columns
+        self._table: Optional[pa.Table] = None
 
     def to_df(self) -> pd.DataFrame:
-        with self._query_generator() as query:
-            return aws_utils.unload_redshift_query_to_df(
-                self._redshift_client,
-                self._config.offline_store.cluster_id,
-                self._config.offline_store.database,
-                self._config.offline_store.user,
-                self._s3_resource,
-                self._s3_path,
-                self._config.offline_store.iam_role,
-                query,
-                self._drop_columns,
-            )
+        return self.to_arrow().to_pandas()
 
     def to_arrow(self) -> pa.Table:
+        # The query only runs once, later calls reuse the unloaded Table
+        if self._table is None:
+            with self._query_generator() as query:
+                self._table = aws_utils.unload_redshift_query_to_pa(
+                    self._redshift_client,
+                    self._config.offline_store.cluster_id,
+                    self._config.offline_store.database,
+                    self._config.offline_store.user,
+                    self._s3_resource,
+                    self._s3_path,
+                    self._config.offline_store.iam_role,
+                    query,
+                    self._drop_columns,
+                )
+        return self._table
+
+    def to_arrow_batches(
+        self, batch_size: Optional[int] = None
+    ) -> Iterator[pa.RecordBatch]:
+        if self._table is not None:
+            return iter(self._table.to_batches(max_chunksize=batch_size))
+        return self._unload_to_arrow_batches(batch_size)
+
+    def _unload_to_arrow_batches(
+        self, batch_size: Optional[int]
+    ) -> Iterator[pa.RecordBatch]:
+        """ Unload the query results to S3 and stream them back one Parquet row group at a time """
         with self._query_generator() as query:
-            return aws_utils.unload_redshift_query_to_pa(
+            aws_utils.execute_redshift_query_and_unload_to_s3(
                 self._redshift_client,
                 self._config.offline_store.cluster_id,
                 self._config.offline_store.database,
                 self._config.offline_store.user,
-                self._s3_resource,
                 self._s3_path,
                 self._config.offline_store.iam_role,
                 query,
                 self._drop_columns,
             )
+        yield from aws_utils.read_s3_directory_as_pa_batches(
+            self._s3_resource, self._s3_path, batch_size
+        )
 
     def to_s3(self) -> str:
         """ Export dataset to S3 in Parquet format and return path """
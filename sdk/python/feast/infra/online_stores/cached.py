@@ -0,0 +1,251 @@
+# Copyright 2021 The Feast Authors
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#     https://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+import threading
+import time
+from collections import OrderedDict
+from datetime import datetime, timezone
+from typing import Any, Callable, Dict, List, Optional, Sequence, Tuple, Union
+
+from feast import Entity, FeatureTable
+from feast.feature_view import FeatureView
+from feast.infra.key_encoding_utils import serialize_entity_key
+from feast.infra.online_stores.online_store import OnlineStore
+from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
+from feast.protos.feast.types.Value_pb2 import Value as ValueProto
+from feast.repo_config import OnlineCacheConfig, RepoConfig
+
+_CacheKey = Tuple[str, str, bytes]
+_CacheEntry = Tuple[float, Optional[datetime], Dict[str, ValueProto]]
+
+
+class CachedOnlineStore(OnlineStore):
+    """
+    Read-through cache in front of another online store. Rows read from the wrapped store are kept in a bounded,
+    least recently used cache keyed by project, feature view and entity key, and are served from memory until
+    they expire. Rows that were not found in the wrapped store are not cached.
+    """
+
+    def __init__(self, online_store: OnlineStore, cache_config: OnlineCacheConfig):
+        self.online_store = online_store
+        self.cache_config = cache_config
+        self.hits = 0
+        self.misses = 0
+        self._entries: "OrderedDict[_CacheKey, _CacheEntry]" = OrderedDict()
+        self._lock = threading.Lock()
+
+    def online_write_batch(
+        self,
+        config: RepoConfig,
+        table: Union[FeatureTable, FeatureView],
+        data: List[
+            Tuple[EntityKeyProto, Dict[str, ValueProto], datetime, Optional[datetime]]
+        ],
+        progress: Optional[Callable[[int], Any]],
+    ) -> None:
+        self.online_store.online_write_batch(config, table, data, progress)
+
+        cache_keys = [
+            _cache_key(config.project, table, entity_key)
+            for entity_key, _, _, _ in data
+        ]
+        with self._lock:
+            for cache_key in cache_keys:
+                self._entries.pop(cache_key, None)
+
+    def online_read(
+        self,
+        config: RepoConfig,
+        table: Union[FeatureTable, FeatureView],
+        entity_keys: List[EntityKeyProto],
+        requested_features: Optional[List[str]] = None,
+    ) -> List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]:
+        cache_keys, result, missing = self._read_cached(
+            config, table, entity_keys, requested_features
+        )
+        if missing:
+            read_result = self.online_store.online_read(
+                config, table, [entity_keys[i] for i in missing], requested_features
+            )
+            self._store(table, cache_keys, result, missing, read_result)
+        return result
+
+    async def online_read_async(
+        self,
+        config: RepoConfig,
+        table: Union[FeatureTable, FeatureView],
+        entity_keys: List[EntityKeyProto],
+        requested_features: Optional[List[str]] = None,
+    ) -> List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]:
+        cache_keys, result, missing = self._read_cached(
+            config, table, entity_keys, requested_features
+        )
+        if missing:
+            read_result = await self.online_store.online_read_async(
+                config, table, [entity_keys[i] for i in missing], requested_features
+            )
+            self._store(table, cache_keys, result, missing, read_result)
+        return result
+
+    def update(
+        self,
+        config: RepoConfig,
+        tables_to_delete: Sequence[Union[FeatureTable, FeatureView]],
+        tables_to_keep: Sequence[Union[FeatureTable, FeatureView]],
+        entities_to_delete: Sequence[Entity],
+        entities_to_keep: Sequence[Entity],
+        partial: bool,
+    ):
+        self.online_store.update(
+            config,
+            tables_to_delete,
+            tables_to_keep,
+            entities_to_delete,
+            entities_to_keep,
+            partial,
+        )
+        self.clear()
+
+    def teardown(
+        self,
+        config: RepoConfig,
+        tables: Sequence[Union[FeatureTable, FeatureView]],
+        entities: Sequence[Entity],
+    ):
+        self.online_store.teardown(config, tables, entities)
+        self.clear()
+
+    def clear(self):
+        """Drops all cached rows."""
+        with self._lock:
+            self._entries.clear()
+
+    def invalidate(self, project: str, table: Union[FeatureTable, FeatureView]):
+        """Drops the cached rows of a table, for rows that were written to the wrapped store directly."""
+        with self._lock:
+            for cache_key in list(self._entries):
+                if cache_key[0] == project and cache_key[1] == table.name:
+                    del self._entries[cache_key]
+
+    def stats(self) -> Dict[str, float]:
+        """
+        Returns the amount of rows served from the cache (hits) and read from the wrapped store (misses) since
+        the cache was created, the share of hits among all rows read and the amount of rows currently cached.
+        """
+        with self._lock:
+            reads = self.hits + self.misses
+            return {
+                "hits": self.hits,
+                "misses": self.misses,
+                "hit_rate": self.hits / reads if reads else 0.0,
+                "entries": len(self._entries),
+            }
+
+    def _read_cached(
+        self,
+        config: RepoConfig,
+        table: Union[FeatureTable, FeatureView],
+        entity_keys: List[EntityKeyProto],
+        requested_features: Optional[List[str]],
+    ) -> Tuple[
+        List[_CacheKey],
+        List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]],
+        List[int],
+    ]:
+        """
+        Looks up the entity keys in the cache. Returns the cache keys, the result with the cached rows filled in
+        and the positions of the entity keys that have to be read from the wrapped store.
+        """
+        cache_keys = [
+            _cache_key(config.project, table, entity_key) for entity_key in entity_keys
+        ]
+        result: List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]] = []
+        missing = []
+
+        now = time.monotonic()
+        with self._lock:
+            for i, cache_key in enumerate(cache_keys):
+                entry = self._entries.get(cache_key)
+                if entry is not None and entry[0] <= now:
+                    del self._entries[cache_key]
+                    entry = None
+                if entry is not None and (
+                    requested_features is None
+                    or all(feature in entry[2] for feature in requested_features)
+                ):
+                    self._entries.move_to_end(cache_key)
+                    result.append((entry[1], entry[2]))
+                else:
+                    result.append((None, None))
+                    missing.append(i)
+            self.hits += len(cache_keys) - len(missing)
+            self.misses += len(missing)
+
+        return cache_keys, result, missing
+
+    def _store(
+        self,
+        table: Union[FeatureTable, FeatureView],
+        cache_keys: List[_CacheKey],
+        result: List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]],
+        missing: List[int],
+        read_result: List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]],
+    ):
+        """Fills the rows read from the wrapped store into the result, and caches the ones that were found."""
+        ttl_seconds = self.cache_config.feature_view_ttl_seconds.get(
+            table.name, self.cache_config.ttl_seconds
+        )
+        now = time.monotonic()
+
+        with self._lock:
+            for i, (event_ts, values) in zip(missing, read_result):
+                result[i] = (event_ts, values)
+                if values is None or ttl_seconds <= 0:
+                    continue
+
+                expires_in = min(ttl_seconds, _seconds_until_stale(table, event_ts))
+                if expires_in <= 0:
+                    continue
+
+                self._entries[cache_keys[i]] = (now + expires_in, event_ts, values)
+                self._entries.move_to_end(cache_keys[i])
+
+            while len(self._entries) > self.cache_config.max_entries:
+                self._entries.popitem(last=False)
+
+
+def _cache_key(
+    project: str, table: Union[FeatureTable, FeatureView], entity_key: EntityKeyProto
+) -> _CacheKey:
+    return project, table.name, serialize_entity_key(entity_key)
+
+
+def _seconds_until_stale(
+    table: Union[FeatureTable, FeatureView], event_ts: Union[datetime, str, None]
+) -> float:
+    """
+    Returns the amount of seconds until a row falls outside the ttl of its feature view. Some stores, like
+    DynamoDB, return the event timestamp as the string representation of a datetime.
+    """
+    ttl = getattr(table, "ttl", None)
+    if isinstance(event_ts, str):
+        try:
+            event_ts = datetime.fromisoformat(event_ts)
+        except ValueError:
+            event_ts = None
+    if not ttl or not isinstance(event_ts, datetime):
+        return float("inf")
+
+    if event_ts.tzinfo is None:
+        event_ts = event_ts.replace(tzinfo=timezone.utc)
+    return (event_ts + ttl - datetime.now(timezone.utc)).total_seconds()
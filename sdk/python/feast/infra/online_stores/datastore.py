@@ -14,9 +14,20 @@
 import itertools
 from datetime import datetime
 from multiprocessing.pool import ThreadPool
-from typing import Any, Callable, Dict, Iterator, List, Optional, Sequence, Tuple, Union
-
-from pydantic import PositiveInt, StrictStr
+from typing import (
+    Any,
+    Callable,
+    Dict,
+    Iterator,
+    List,
+    Optional,
+    Sequence,
+    Tuple,
+    TypeVar,
+    Union,
+)
+
+from pydantic import PositiveInt, StrictStr, conint
 from pydantic.typing import Literal
 
 from feast import Entity, FeatureTable, utils
@@ -40,6 +51,8 @@ ProtoBatch = Sequence[
     Tuple[EntityKeyProto, Dict[str, ValueProto], datetime, Optional[datetime]]
 ]
 
+T = TypeVar("T")
+
 
 class DatastoreOnlineStoreConfig(FeastConfigBaseModel):
     """ Online store config for GCP Datastore """
@@ -59,6 +72,12 @@ class DatastoreOnlineStoreConfig(FeastConfigBaseModel):
     write_batch_size: Optional[PositiveInt] = 50
     """ (optional) Amount of feature rows per batch being written into Datastore"""
 
+    read_concurrency: Optional[PositiveInt] = 10
+    """ (optional) Amount of threads to use when looking up batches of keys in Datastore"""
+
+    read_batch_size: Optional[conint(gt=0, le=1000)] = 1000  # type: ignore
+    """ (optional) Amount of keys per lookup, at most 1000 which is the Datastore limit"""
+
 
 class DatastoreOnlineStore(OnlineStore):
     """
@@ -67,6 +86,7 @@ class DatastoreOnlineStore(OnlineStore):
     """
 
     _client: Optional[datastore.Client] = None
+    _read_pool: Optional[ThreadPool] = None
 
     def update(
         self,
@@ -164,10 +184,10 @@ class DatastoreOnlineStore(OnlineStore):
         )
 
     @staticmethod
-    def _to_minibatches(data: ProtoBatch, batch_size) -> Iterator[ProtoBatch]:
+    def _to_minibatches(data: Sequence[T], batch_size) -> Iterator[List[T]]:
         """
-        Split data into minibatches, making sure we stay under GCP datastore transaction size
-        limits.
+        Split data into minibatches, making sure we stay under GCP datastore transaction and
+        lookup size limits.
         """
         iterable = iter(data)
 
@@ -233,13 +253,34 @@ class DatastoreOnlineStore(OnlineStore):
 
         feast_project = config.project
 
-        result: List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]] = []
+        keys: List[datastore.Key] = []
         for entity_key in entity_keys:
             document_id = compute_entity_id(entity_key)
-            key = client.key(
-                "Project", feast_project, "Table", table.name, "Row", document_id
+            keys.append(
+                client.key(
+                    "Project", feast_project, "Table", table.name, "Row", document_id
+                )
             )
-            value = client.get(key)
+
+        # Fetch all unique keys in lookups under the Datastore limit and index the results by key
+        # name, since get_multi returns entities in no particular order and omits missing ones.
+        unique_keys = list({key.name: key for key in keys}.values())
+        batches = list(
+            self._to_minibatches(unique_keys, batch_size=online_config.read_batch_size)
+        )
+        if len(batches) > 1:
+            batch_entities = self._get_read_pool(online_config).map(
+                lambda b: self._read_minibatch(client, b), batches
+            )
+        else:
+            batch_entities = [self._read_minibatch(client, b) for b in batches]
+        values = {
+            entity.key.name: entity for entities in batch_entities for entity in entities
+        }
+
+        result: List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]] = []
+        for key in keys:
+            value = values.get(key.name)
             if value is not None:
                 res = {}
                 for feature_name, value_bin in value["values"].items():
@@ -251,6 +292,24 @@ class DatastoreOnlineStore(OnlineStore):
                 result.append((None, None))
         return result
 
+    def _get_read_pool(self, online_config: DatastoreOnlineStoreConfig) -> ThreadPool:
+        if not self._read_pool:
+            self._read_pool = ThreadPool(processes=online_config.read_concurrency)
+        return self._read_pool
+
+    @staticmethod
+    def _read_minibatch(client, keys: List[datastore.Key]) -> List[datastore.Entity]:
+        """
+        Look up a minibatch of keys, retrying the keys Datastore deferred until all of them were
+        looked up.
+        """
+        entities: List[datastore.Entity] = []
+        while keys:
+            deferred: List[datastore.Key] = []
+            entities.extend(client.get_multi(keys, deferred=deferred))
+            keys = deferred
+        return entities
+
 
 def _delete_all_values(client, key) -> None:
     """
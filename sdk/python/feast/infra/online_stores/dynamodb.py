@@ -11,13 +11,31 @@
 # WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
 # See the License for the specific language governing permissions and
 # limitations under the License.
+import asyncio
+import random
+import threading
+import time
+from collections import defaultdict
 from datetime import datetime
-from typing import Any, Callable, Dict, List, Optional, Sequence, Tuple, Union
+from functools import partial
+from multiprocessing.pool import ThreadPool
+from typing import (
+    Any,
+    Callable,
+    Dict,
+    Iterable,
+    List,
+    Optional,
+    Sequence,
+    Tuple,
+    Union,
+)
 
-from pydantic import StrictStr
+from pydantic import PositiveInt, StrictStr, conint
 from pydantic.typing import Literal
 
 from feast import Entity, FeatureTable, FeatureView, utils
+from feast.errors import DynamoDBUnprocessedItemsError
 from feast.infra.online_stores.helpers import compute_entity_id
 from feast.infra.online_stores.online_store import OnlineStore
 from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
@@ -32,6 +50,16 @@ except ImportError as e:
 
     raise FeastExtrasDependencyImportError("aws", str(e))
 
+# Maximum amount of keys a single BatchGetItem request may contain
+BATCH_GET_ITEM_MAX_KEYS = 100
+
+# Error codes DynamoDB returns when a request is throttled
+THROTTLING_ERROR_CODES = {
+    "ProvisionedThroughputExceededException",
+    "RequestLimitExceeded",
+    "ThrottlingException",
+}
+
 
 class DynamoDBOnlineStoreConfig(FeastConfigBaseModel):
     """Online store config for DynamoDB store"""
@@ -42,12 +70,28 @@ class DynamoDBOnlineStoreConfig(FeastConfigBaseModel):
     region: StrictStr
     """ AWS Region Name """
 
+    read_concurrency: Optional[PositiveInt] = 10
+    """ (optional) Amount of threads used to send BatchGetItem requests in parallel when reading"""
+
+    write_concurrency: Optional[PositiveInt] = 8
+    """ (optional) Amount of threads to use when writing batches of feature rows into DynamoDB"""
+
+    write_batch_size: Optional[conint(gt=0, le=25)] = 25  # type: ignore
+    """ (optional) Amount of feature rows per BatchWriteItem request, at most 25"""
+
+    max_retries: Optional[PositiveInt] = 8
+    """ (optional) Amount of times throttled requests or unprocessed items are retried before failing"""
+
 
 class DynamoDBOnlineStore(OnlineStore):
     """
     Online feature store for AWS DynamoDB.
     """
 
+    _dynamodb_client = None
+    _dynamodb_resource = None
+    _read_pool: Optional[ThreadPool] = None
+
     def update(
         self,
         config: RepoConfig,
@@ -96,6 +140,16 @@ class DynamoDBOnlineStore(OnlineStore):
         _, dynamodb_resource = self._initialize_dynamodb(online_config)
 
         self._delete_tables_idempotent(dynamodb_resource, config, tables)
+        self.close()
+
+    def close(self):
+        """
+        Stops the threads used to send BatchGetItem requests in parallel. They are started again by the next read.
+        """
+        if self._read_pool:
+            self._read_pool.close()
+            self._read_pool.join()
+            self._read_pool = None
 
     def online_write_batch(
         self,
@@ -108,24 +162,49 @@ class DynamoDBOnlineStore(OnlineStore):
     ) -> None:
         online_config = config.online_store
         assert isinstance(online_config, DynamoDBOnlineStoreConfig)
-        _, dynamodb_resource = self._initialize_dynamodb(online_config)
+        dynamodb_client, _ = self._initialize_dynamodb(online_config)
+        table_name = f"{config.project}.{table.name}"
 
-        table_instance = dynamodb_resource.Table(f"{config.project}.{table.name}")
-        with table_instance.batch_writer() as batch:
-            for entity_key, features, timestamp, created_ts in data:
-                entity_id = compute_entity_id(entity_key)
-                batch.put_item(
-                    Item={
-                        "entity_id": entity_id,  # PartitionKey
-                        "event_ts": str(utils.make_tzaware(timestamp)),
-                        "values": {
-                            k: v.SerializeToString()
+        # A single BatchWriteItem request must not contain the same key twice, so only the row with the latest
+        # event timestamp per entity is kept. Progress is reported in input rows, duplicates included.
+        items: Dict[str, Tuple[datetime, Dict[str, Any]]] = {}
+        row_counts: Dict[str, int] = defaultdict(int)
+        for entity_key, features, timestamp, created_ts in data:
+            entity_id = compute_entity_id(entity_key)
+            timestamp = utils.make_tzaware(timestamp)
+            row_counts[entity_id] += 1
+            if entity_id in items and items[entity_id][0] > timestamp:
+                continue
+            items[entity_id] = (
+                timestamp,
+                {
+                    "entity_id": {"S": entity_id},  # PartitionKey
+                    "event_ts": {"S": str(timestamp)},
+                    "values": {
+                        "M": {
+                            k: {"B": v.SerializeToString()}
                             for k, v in features.items()  # Serialized Features
-                        },
-                    }
-                )
-                if progress:
-                    progress(1)
+                        }
+                    },
+                },
+            )
+
+        item_list = [item for _, item in items.values()]
+        batches = [
+            item_list[i : i + online_config.write_batch_size]
+            for i in range(0, len(item_list), online_config.write_batch_size)
+        ]
+        backoff = _ThrottlingBackoff()
+
+        def _write_batch(batch: List[Dict[str, Any]]):
+            _batch_write_items(
+                dynamodb_client, table_name, batch, backoff, online_config.max_retries
+            )
+            if progress:
+                progress(sum(row_counts[item["entity_id"]["S"]] for item in batch))
+
+        with ThreadPool(processes=online_config.write_concurrency) as pool:
+            pool.map(_write_batch, batches)
 
     def online_read(
         self,
@@ -136,32 +215,79 @@ class DynamoDBOnlineStore(OnlineStore):
     ) -> List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]:
         online_config = config.online_store
         assert isinstance(online_config, DynamoDBOnlineStoreConfig)
-        _, dynamodb_resource = self._initialize_dynamodb(online_config)
+        dynamodb_client, _ = self._initialize_dynamodb(online_config)
+        table_name = f"{config.project}.{table.name}"
 
-        result: List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]] = []
-        for entity_key in entity_keys:
-            table_instance = dynamodb_resource.Table(f"{config.project}.{table.name}")
-            entity_id = compute_entity_id(entity_key)
-            response = table_instance.get_item(Key={"entity_id": entity_id})
-            value = response.get("Item")
-
-            if value is not None:
-                res = {}
-                for feature_name, value_bin in value["values"].items():
-                    val = ValueProto()
-                    val.ParseFromString(value_bin.value)
-                    res[feature_name] = val
-                result.append((value["event_ts"], res))
-            else:
-                result.append((None, None))
-        return result
+        entity_ids = [compute_entity_id(entity_key) for entity_key in entity_keys]
+        requests = _to_batch_get_requests(entity_ids, requested_features)
 
-    def _initialize_dynamodb(self, online_config: DynamoDBOnlineStoreConfig):
-        return (
-            boto3.client("dynamodb", region_name=online_config.region),
-            boto3.resource("dynamodb", region_name=online_config.region),
+        def _read_batch(keys_and_attributes: Dict[str, Any]) -> List[Dict[str, Any]]:
+            return _batch_get_items(
+                dynamodb_client,
+                table_name,
+                keys_and_attributes,
+                online_config.max_retries,
+            )
+
+        if len(requests) > 1:
+            batch_items = self._get_read_pool(online_config).map(_read_batch, requests)
+        else:
+            batch_items = [_read_batch(request) for request in requests]
+
+        return _to_read_result(entity_ids, batch_items)
+
+    async def online_read_async(
+        self,
+        config: RepoConfig,
+        table: Union[FeatureTable, FeatureView],
+        entity_keys: List[EntityKeyProto],
+        requested_features: Optional[List[str]] = None,
+    ) -> List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]:
+        online_config = config.online_store
+        assert isinstance(online_config, DynamoDBOnlineStoreConfig)
+        dynamodb_client, _ = self._initialize_dynamodb(online_config)
+        table_name = f"{config.project}.{table.name}"
+
+        entity_ids = [compute_entity_id(entity_key) for entity_key in entity_keys]
+        requests = _to_batch_get_requests(entity_ids, requested_features)
+
+        # boto3 has no asyncio support, so every BatchGetItem request is awaited on its own executor
+        # thread. The requests of all concurrent lookups are interleaved by the event loop.
+        loop = asyncio.get_event_loop()
+        batch_items = await asyncio.gather(
+            *[
+                loop.run_in_executor(
+                    None,
+                    partial(
+                        _batch_get_items,
+                        dynamodb_client,
+                        table_name,
+                        request,
+                        online_config.max_retries,
+                    ),
+                )
+                for request in requests
+            ]
         )
 
+        return _to_read_result(entity_ids, batch_items)
+
+    def _initialize_dynamodb(self, online_config: DynamoDBOnlineStoreConfig):
+        if not self._dynamodb_client:
+            self._dynamodb_client = boto3.client(
+                "dynamodb", region_name=online_config.region
+            )
+        if not self._dynamodb_resource:
+            self._dynamodb_resource = boto3.resource(
+                "dynamodb", region_name=online_config.region
+            )
+        return self._dynamodb_client, self._dynamodb_resource
+
+    def _get_read_pool(self, online_config: DynamoDBOnlineStoreConfig) -> ThreadPool:
+        if not self._read_pool:
+            self._read_pool = ThreadPool(processes=online_config.read_concurrency)
+        return self._read_pool
+
     def _delete_tables_idempotent(
         self,
         dynamodb_resource,
@@ -180,3 +306,152 @@ class DynamoDBOnlineStore(OnlineStore):
                 # Otherwise, re-raise the exception
                 if ce.response["Error"]["Code"] != "ResourceNotFoundException":
                     raise
+
+
+def _to_batch_get_requests(
+    entity_ids: List[str], requested_features: Optional[List[str]]
+) -> List[Dict[str, Any]]:
+    """
+    Builds the BatchGetItem requests, as KeysAndAttributes for a single table, needed to look up the given
+    entity ids.
+    """
+    keys_and_attributes: Dict[str, Any] = {}
+    if requested_features:
+        # Only fetch the requested features out of the "values" map, to save read capacity
+        feature_placeholders = [f"#f{i}" for i in range(len(requested_features))]
+        keys_and_attributes["ProjectionExpression"] = ", ".join(
+            ["entity_id", "event_ts"] + [f"#values.{p}" for p in feature_placeholders]
+        )
+        keys_and_attributes["ExpressionAttributeNames"] = {
+            "#values": "values",
+            **dict(zip(feature_placeholders, requested_features)),
+        }
+
+    unique_entity_ids = list(dict.fromkeys(entity_ids))
+    return [
+        {
+            "Keys": [
+                {"entity_id": {"S": entity_id}}
+                for entity_id in unique_entity_ids[i : i + BATCH_GET_ITEM_MAX_KEYS]
+            ],
+            **keys_and_attributes,
+        }
+        for i in range(0, len(unique_entity_ids), BATCH_GET_ITEM_MAX_KEYS)
+    ]
+
+
+def _to_read_result(
+    entity_ids: List[str], batch_items: Iterable[List[Dict[str, Any]]]
+) -> List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]:
+    """
+    Matches the items returned by BatchGetItem back to the requested entity ids, in request order.
+    """
+    items = {item["entity_id"]["S"]: item for items in batch_items for item in items}
+
+    result: List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]] = []
+    for entity_id in entity_ids:
+        value = items.get(entity_id)
+        if value is not None:
+            res = {}
+            # The values map is absent when none of the projected features were ever written
+            values_bin = value.get("values", {}).get("M", {})
+            for feature_name, value_bin in values_bin.items():
+                val = ValueProto()
+                val.ParseFromString(value_bin["B"])
+                res[feature_name] = val
+            result.append((value["event_ts"]["S"], res))
+        else:
+            result.append((None, None))
+    return result
+
+
+def _batch_get_items(
+    dynamodb_client,
+    table_name: str,
+    keys_and_attributes: Dict[str, Any],
+    max_retries: int,
+) -> List[Dict[str, Any]]:
+    """
+    Fetches a single batch of items with BatchGetItem, retrying unprocessed keys with exponential backoff.
+    Items are returned in the low level client format, in no particular order.
+    """
+    items: List[Dict[str, Any]] = []
+    request_items = {table_name: keys_and_attributes}
+    attempt = 0
+    while True:
+        response = dynamodb_client.batch_get_item(RequestItems=request_items)
+        items.extend(response["Responses"].get(table_name, []))
+
+        request_items = response.get("UnprocessedKeys")
+        if not request_items:
+            return items
+        if attempt >= max_retries:
+            raise DynamoDBUnprocessedItemsError(
+                table_name, len(request_items[table_name]["Keys"]), max_retries
+            )
+        time.sleep(min(0.05 * 2 ** attempt, 2.0))
+        attempt += 1
+
+
+class _ThrottlingBackoff:
+    """
+    Delay shared by all writer threads of a single online_write_batch call. The delay doubles every time
+    DynamoDB throttles a request and halves on every successful one, so that the writers settle on the
+    throughput the table can sustain.
+    """
+
+    def __init__(self, min_delay: float = 0.05, max_delay: float = 5.0):
+        self._min_delay = min_delay
+        self._max_delay = max_delay
+        self._delay = 0.0
+        self._lock = threading.Lock()
+
+    def on_throttled(self):
+        with self._lock:
+            self._delay = min(max(self._delay * 2, self._min_delay), self._max_delay)
+
+    def on_success(self):
+        with self._lock:
+            self._delay = self._delay / 2 if self._delay > self._min_delay else 0.0
+
+    def wait(self):
+        delay = self._delay
+        if delay > 0:
+            # Jitter the delay so that throttled writers don't retry in lockstep
+            time.sleep(delay * random.uniform(0.5, 1.0))
+
+
+def _batch_write_items(
+    dynamodb_client,
+    table_name: str,
+    items: List[Dict[str, Any]],
+    backoff: _ThrottlingBackoff,
+    max_retries: int,
+):
+    """
+    Writes a single batch of items with BatchWriteItem, backing off while the table is throttling and
+    retrying unprocessed items.
+    """
+    request_items = {table_name: [{"PutRequest": {"Item": item}} for item in items]}
+    retries = 0
+    while True:
+        backoff.wait()
+        try:
+            response = dynamodb_client.batch_write_item(RequestItems=request_items)
+        except ClientError as ce:
+            if ce.response["Error"]["Code"] not in THROTTLING_ERROR_CODES:
+                raise
+            response = {"UnprocessedItems": request_items}
+
+        unprocessed_items = response.get("UnprocessedItems")
+        if not unprocessed_items:
+            backoff.on_success()
+            return
+
+        backoff.on_throttled()
+        if retries >= max_retries:
+            raise DynamoDBUnprocessedItemsError(
+                table_name, len(unprocessed_items[table_name]), max_retries
+            )
+        request_items = unprocessed_items
+        retries += 1
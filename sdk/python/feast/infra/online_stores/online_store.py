@@ -12,8 +12,10 @@
 # See the License for the specific language governing permissions and
 # limitations under the License.
 
+import asyncio
 from abc import ABC, abstractmethod
 from datetime import datetime
+from functools import partial
 from typing import Any, Callable, Dict, List, Optional, Sequence, Tuple, Union
 
 from feast import Entity, FeatureTable
@@ -80,6 +82,34 @@ class OnlineStore(ABC):
         """
         ...
 
+    async def online_read_async(
+        self,
+        config: RepoConfig,
+        table: Union[FeatureTable, FeatureView],
+        entity_keys: List[EntityKeyProto],
+        requested_features: Optional[List[str]] = None,
+    ) -> List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]:
+        """
+        Read feature values given an Entity Key without blocking the event loop. This is a low level
+        interface, not expected to be used by the users directly.
+
+        Online stores that can't read natively from asyncio don't need to override this method: by default
+        online_read is run on the default executor of the running event loop.
+
+        Args:
+            config: The RepoConfig for the current FeatureStore.
+            table: Feast FeatureTable or FeatureView
+            entity_keys: a list of entity keys that should be read from the FeatureStore.
+            requested_features: (Optional) A subset of the features that should be read from the FeatureStore.
+        Returns:
+            Data is returned in the same format as online_read.
+        """
+        loop = asyncio.get_event_loop()
+        return await loop.run_in_executor(
+            None,
+            partial(self.online_read, config, table, entity_keys, requested_features),
+        )
+
     @abstractmethod
     def update(
         self,
@@ -11,13 +11,28 @@
 # WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
 # See the License for the specific language governing permissions and
 # limitations under the License.
+import asyncio
+import itertools
 import json
+import weakref
+from collections import defaultdict
 from datetime import datetime
 from enum import Enum
-from typing import Any, Callable, Dict, List, Optional, Sequence, Tuple, Union
+from multiprocessing.pool import ThreadPool
+from typing import (
+    Any,
+    Callable,
+    Dict,
+    Iterator,
+    List,
+    Optional,
+    Sequence,
+    Tuple,
+    Union,
+)
 
 from google.protobuf.timestamp_pb2 import Timestamp
-from pydantic import StrictStr
+from pydantic import PositiveInt, StrictBool, StrictStr
 from pydantic.typing import Literal
 
 from feast import Entity, FeatureTable, FeatureView, RepoConfig, utils
@@ -56,9 +71,27 @@ class RedisOnlineStoreConfig(FeastConfigBaseModel):
     """Connection string containing the host, port, and configuration parameters for Redis
      format: host:port,parameter1,parameter2 eg. redis:6379,db=0 """
 
+    write_batch_size: Optional[PositiveInt] = 500
+    """ (optional) Amount of feature rows sent to Redis in a single pipeline when writing"""
+
+    write_concurrency: Optional[PositiveInt] = 4
+    """ (optional) Amount of write pipelines kept in flight at the same time"""
+
+    write_transaction: StrictBool = False
+    """ (optional) Whether every write pipeline should be wrapped in a MULTI/EXEC transaction. Ignored for
+     redis_cluster """
+
+    read_batch_size: Optional[PositiveInt] = 500
+    """ (optional) Amount of entity keys sent to Redis in a single pipeline when reading"""
+
+    read_concurrency: Optional[PositiveInt] = 8
+    """ (optional) Amount of threads used to read from Redis Cluster nodes in parallel"""
+
 
 class RedisOnlineStore(OnlineStore):
     _client: Optional[Union[Redis, RedisCluster]] = None
+    _pool: Optional[ThreadPool] = None
+    _async_clients: Optional[weakref.WeakKeyDictionary] = None
 
     def update(
         self,
@@ -121,7 +154,7 @@ class RedisOnlineStore(OnlineStore):
             startup_nodes, kwargs = self._parse_connection_string(
                 online_store_config.connection_string
             )
-            if online_store_config.type == RedisType.redis_cluster:
+            if online_store_config.redis_type == RedisType.redis_cluster:
                 kwargs["startup_nodes"] = startup_nodes
                 self._client = RedisCluster(**kwargs)
             else:
@@ -144,28 +177,65 @@ class RedisOnlineStore(OnlineStore):
 
         client = self._get_client(online_store_config)
         project = config.project
-
-        entity_hset = {}
         feature_view = table.name
 
         ex = Timestamp()
         ex.seconds = EX_SECONDS
         ex_str = ex.SerializeToString()
 
+        hsets: List[Tuple[bytes, Dict[Union[str, bytes], bytes]]] = []
         for entity_key, values, timestamp, created_ts in data:
-            redis_key_bin = _redis_key(project, entity_key)
             ts = Timestamp()
             ts.seconds = int(utils.make_tzaware(timestamp).timestamp())
-            entity_hset[f"_ts:{feature_view}"] = ts.SerializeToString()
-            entity_hset[f"_ex:{feature_view}"] = ex_str
-
+            entity_hset: Dict[Union[str, bytes], bytes] = {
+                f"_ts:{feature_view}": ts.SerializeToString(),
+                f"_ex:{feature_view}": ex_str,
+            }
             for feature_name, val in values.items():
                 f_key = _mmh3(f"{feature_view}:{feature_name}")
                 entity_hset[f_key] = val.SerializeToString()
+            hsets.append((_redis_key(project, entity_key), entity_hset))
+
+        is_cluster = online_store_config.redis_type == RedisType.redis_cluster
+        # Redis Cluster pipelines can't be wrapped in a MULTI/EXEC transaction
+        transaction = online_store_config.write_transaction and not is_cluster
 
-            client.hset(redis_key_bin, mapping=entity_hset)
+        if is_cluster:
+            # Every pipeline only holds keys owned by a single node, so that the pipelines
+            # for different nodes are written in parallel.
+            node_to_indices = self._group_by_node(
+                client, [redis_key_bin for redis_key_bin, _ in hsets]
+            )
+            batches = [
+                batch
+                for indices in node_to_indices.values()
+                for batch in _to_batches(
+                    [hsets[idx] for idx in indices],
+                    online_store_config.write_batch_size,
+                )
+            ]
+        else:
+            batches = list(_to_batches(hsets, online_store_config.write_batch_size))
+
+        def _write_batch(batch: List[Tuple[bytes, Dict[Union[str, bytes], bytes]]]):
+            with client.pipeline(transaction=transaction) as pipe:
+                for redis_key_bin, entity_hset in batch:
+                    pipe.hset(redis_key_bin, mapping=entity_hset)
+                pipe.execute()
             if progress:
-                progress(1)
+                progress(len(batch))
+
+        # The amount of threads bounds the amount of pipelines in flight at any time
+        with ThreadPool(processes=online_store_config.write_concurrency) as pool:
+            pool.map(_write_batch, batches)
+
+    def _get_pool(self, online_store_config: RedisOnlineStoreConfig) -> ThreadPool:
+        """
+        Creates the thread pool used to talk to Redis Cluster nodes in parallel
+        """
+        if not self._pool:
+            self._pool = ThreadPool(processes=online_store_config.read_concurrency)
+        return self._pool
 
     def online_read(
         self,
@@ -178,38 +248,198 @@ class RedisOnlineStore(OnlineStore):
         assert isinstance(online_store_config, RedisOnlineStoreConfig)
 
         client = self._get_client(online_store_config)
-        feature_view = table.name
         project = config.project
 
+        hset_keys, requested_features, ts_key = self._get_hset_keys(
+            table, requested_features
+        )
+        keys = [_redis_key(project, entity_key) for entity_key in entity_keys]
+
+        if online_store_config.redis_type == RedisType.redis_cluster:
+            # Group keys by the node owning their hash slot, so that every pipeline only talks
+            # to a single node and the pipelines for different nodes can run concurrently.
+            node_to_indices = self._group_by_node(client, keys)
+
+            def _read_node(indices: List[int]) -> List[Tuple[int, List[Any]]]:
+                node_values = self._pipelined_hmget(
+                    client,
+                    [keys[idx] for idx in indices],
+                    hset_keys,
+                    online_store_config.read_batch_size,
+                )
+                return list(zip(indices, node_values))
+
+            redis_values: List[Any] = [None] * len(keys)
+            for node_result in self._get_pool(online_store_config).map(
+                _read_node, node_to_indices.values()
+            ):
+                for idx, values in node_result:
+                    redis_values[idx] = values
+        else:
+            redis_values = self._pipelined_hmget(
+                client, keys, hset_keys, online_store_config.read_batch_size
+            )
+
         result: List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]] = []
+        for values in redis_values:
+            result.append(
+                self._get_features_for_entity(values, requested_features, ts_key)
+            )
+        return result
+
+    async def online_read_async(
+        self,
+        config: RepoConfig,
+        table: Union[FeatureTable, FeatureView],
+        entity_keys: List[EntityKeyProto],
+        requested_features: Optional[List[str]] = None,
+    ) -> List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]:
+        online_store_config = config.online_store
+        assert isinstance(online_store_config, RedisOnlineStoreConfig)
+
+        if online_store_config.redis_type == RedisType.redis_cluster:
+            # aioredis doesn't support Redis Cluster, so fall back to reading on an executor thread
+            return await super().online_read_async(
+                config, table, entity_keys, requested_features
+            )
 
+        client = self._get_async_client(online_store_config)
+        project = config.project
+
+        hset_keys, requested_features, ts_key = self._get_hset_keys(
+            table, requested_features
+        )
+        keys = [_redis_key(project, entity_key) for entity_key in entity_keys]
+
+        async def _read_batch(batch: List[bytes]) -> List[Any]:
+            async with client.pipeline(transaction=False) as pipe:
+                for redis_key_bin in batch:
+                    pipe.hmget(redis_key_bin, hset_keys)
+                return await pipe.execute()
+
+        # Every pipeline runs on its own connection of the client pool, so the batches are sent concurrently
+        batch_values = await asyncio.gather(
+            *[
+                _read_batch(batch)
+                for batch in _to_batches(keys, online_store_config.read_batch_size)
+            ]
+        )
+
+        return [
+            self._get_features_for_entity(values, requested_features, ts_key)
+            for values in itertools.chain.from_iterable(batch_values)
+        ]
+
+    def _get_async_client(self, online_store_config: RedisOnlineStoreConfig):
+        """
+        Creates the asyncio Redis client of the running event loop. The connections of a client are bound to
+        the event loop they were opened on, so every event loop gets its own client. Only single Redis
+        instances are supported.
+        """
+        if self._async_clients is None:
+            self._async_clients = weakref.WeakKeyDictionary()
+        loop = asyncio.get_event_loop()
+        client = self._async_clients.get(loop)
+        if client is None:
+            try:
+                import aioredis
+            except ImportError as e:
+                from feast.errors import FeastExtrasDependencyImportError
+
+                raise FeastExtrasDependencyImportError("redis", str(e))
+
+            startup_nodes, kwargs = self._parse_connection_string(
+                online_store_config.connection_string
+            )
+            kwargs["host"] = startup_nodes[0]["host"]
+            kwargs["port"] = startup_nodes[0]["port"]
+            client = aioredis.Redis(**kwargs)
+            self._async_clients[loop] = client
+        return client
+
+    @staticmethod
+    def _get_hset_keys(
+        table: Union[FeatureTable, FeatureView], requested_features: Optional[List[str]]
+    ) -> Tuple[List[Union[str, bytes]], List[str], str]:
+        """
+        Returns the hash fields to read for the requested features, followed by the timestamp field, along
+        with the names of the corresponding features and the name of the timestamp field.
+        """
+        feature_view = table.name
         if not requested_features:
             requested_features = [f.name for f in table.features]
 
-        for entity_key in entity_keys:
-            redis_key_bin = _redis_key(project, entity_key)
-            hset_keys = [_mmh3(f"{feature_view}:{k}") for k in requested_features]
-            ts_key = f"_ts:{feature_view}"
-            hset_keys.append(ts_key)
-            values = client.hmget(redis_key_bin, hset_keys)
-            requested_features.append(ts_key)
-            res_val = dict(zip(requested_features, values))
-
-            res_ts = Timestamp()
-            ts_val = res_val.pop(ts_key)
-            if ts_val:
-                res_ts.ParseFromString(ts_val)
-
-            res = {}
-            for feature_name, val_bin in res_val.items():
-                val = ValueProto()
-                if val_bin:
-                    val.ParseFromString(val_bin)
-                res[feature_name] = val
-
-            if not res:
-                result.append((None, None))
-            else:
-                timestamp = datetime.fromtimestamp(res_ts.seconds)
-                result.append((timestamp, res))
-        return result
+        hset_keys: List[Union[str, bytes]] = [
+            _mmh3(f"{feature_view}:{k}") for k in requested_features
+        ]
+        ts_key = f"_ts:{feature_view}"
+        hset_keys.append(ts_key)
+        return hset_keys, requested_features + [ts_key], ts_key
+
+    @staticmethod
+    def _group_by_node(client: RedisCluster, keys: List[bytes]) -> Dict[str, List[int]]:
+        """
+        Groups the positions of the given keys by the name of the master node owning their hash slot.
+        """
+        node_to_indices: Dict[str, List[int]] = defaultdict(list)
+        for idx, key in enumerate(keys):
+            slot = client.connection_pool.nodes.keyslot(key)
+            node = client.connection_pool.get_master_node_by_slot(slot)
+            node_to_indices[node["name"]].append(idx)
+        return node_to_indices
+
+    @staticmethod
+    def _pipelined_hmget(
+        client: Union[Redis, RedisCluster],
+        keys: List[bytes],
+        hset_keys: List[Union[str, bytes]],
+        batch_size: int,
+    ) -> List[Any]:
+        """
+        Sends one HMGET per key, batch_size keys per pipeline, and returns the replies in key order.
+        """
+        redis_values: List[Any] = []
+        for batch in _to_batches(keys, batch_size):
+            with client.pipeline(transaction=False) as pipe:
+                for redis_key_bin in batch:
+                    pipe.hmget(redis_key_bin, hset_keys)
+                redis_values.extend(pipe.execute())
+        return redis_values
+
+    @staticmethod
+    def _get_features_for_entity(
+        values: List[Optional[bytes]], requested_features: List[str], ts_key: str,
+    ) -> Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]:
+        res_val = dict(zip(requested_features, values))
+
+        res_ts = Timestamp()
+        ts_val = res_val.pop(ts_key)
+        if ts_val:
+            res_ts.ParseFromString(ts_val)
+
+        res = {}
+        for feature_name, val_bin in res_val.items():
+            val = ValueProto()
+            if val_bin:
+                val.ParseFromString(val_bin)
+            res[feature_name] = val
+
+        if not res:
+            return None, None
+        else:
+            timestamp = datetime.fromtimestamp(res_ts.seconds)
+            return timestamp, res
+
+
+def _to_batches(items: List[Any], batch_size: int) -> Iterator[List[Any]]:
+    """
+    Split items into batches of at most batch_size items.
+    """
+    iterable = iter(items)
+
+    while True:
+        batch = list(itertools.islice(iterable, batch_size))
+        if len(batch) > 0:
+            yield batch
+        else:
+            break
@@ -12,14 +12,19 @@
 # See the License for the specific language governing permissions and
 # limitations under the License.
 
+import asyncio
 import os
 import sqlite3
+import threading
+from collections import defaultdict
+from concurrent.futures import ThreadPoolExecutor
 from datetime import datetime
+from functools import partial
 from pathlib import Path
 from typing import Any, Callable, Dict, List, Optional, Sequence, Tuple, Union
 
 import pytz
-from pydantic import StrictStr
+from pydantic import StrictBool, StrictStr
 from pydantic.schema import Literal
 
 from feast import Entity, FeatureTable
@@ -30,6 +35,10 @@ from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
 from feast.protos.feast.types.Value_pb2 import Value as ValueProto
 from feast.repo_config import FeastConfigBaseModel, RepoConfig
 
+# Amount of entity keys looked up per SELECT. Kept below SQLITE_MAX_VARIABLE_NUMBER, which defaults to 999 on
+# older SQLite versions.
+READ_BATCH_SIZE = 500
+
 
 class SqliteOnlineStoreConfig(FeastConfigBaseModel):
     """ Online store config for local (SQLite-based) store """
@@ -42,6 +51,10 @@ class SqliteOnlineStoreConfig(FeastConfigBaseModel):
     path: StrictStr = "data/online.db"
     """ (optional) Path to sqlite db """
 
+    bulk_load_pragmas: StrictBool = False
+    """ (optional) Use WAL journaling and synchronous=NORMAL, which speeds up bulk loads at the cost of
+    durability of the most recent transactions on power loss """
+
 
 class SqliteOnlineStore(OnlineStore):
     """
@@ -50,6 +63,9 @@ class SqliteOnlineStore(OnlineStore):
     """
 
     _conn: Optional[sqlite3.Connection] = None
+    _async_executor: Optional[ThreadPoolExecutor] = None
+    # Transactions on the shared connection must not interleave when feature views are materialized concurrently
+    _write_lock = threading.Lock()
 
     @staticmethod
     def _get_db_path(config: RepoConfig) -> str:
@@ -66,13 +82,26 @@ class SqliteOnlineStore(OnlineStore):
 
     def _get_conn(self, config: RepoConfig):
         if not self._conn:
-            db_path = self._get_db_path(config)
-            Path(db_path).parent.mkdir(exist_ok=True)
-            self._conn = sqlite3.connect(
-                db_path, detect_types=sqlite3.PARSE_DECLTYPES | sqlite3.PARSE_COLNAMES,
-            )
+            with self._write_lock:
+                if not self._conn:
+                    self._conn = self._connect(config)
         return self._conn
 
+    def _connect(self, config: RepoConfig) -> sqlite3.Connection:
+        db_path = self._get_db_path(config)
+        Path(db_path).parent.mkdir(exist_ok=True)
+        # The connection is shared by all threads reading from the store, e.g. when a FeatureStore
+        # reads several feature views concurrently.
+        conn = sqlite3.connect(
+            db_path,
+            detect_types=sqlite3.PARSE_DECLTYPES | sqlite3.PARSE_COLNAMES,
+            check_same_thread=False,
+        )
+        if config.online_store.bulk_load_pragmas:
+            conn.execute("PRAGMA journal_mode=WAL")
+            conn.execute("PRAGMA synchronous=NORMAL")
+        return conn
+
     def online_write_batch(
         self,
         config: RepoConfig,
@@ -87,45 +116,28 @@ class SqliteOnlineStore(OnlineStore):
 
         project = config.project
 
-        with conn:
-            for entity_key, values, timestamp, created_ts in data:
-                entity_key_bin = serialize_entity_key(entity_key)
-                timestamp = _to_naive_utc(timestamp)
-                if created_ts is not None:
-                    created_ts = _to_naive_utc(created_ts)
-
-                for feature_name, val in values.items():
-                    conn.execute(
-                        f"""
-                            UPDATE {_table_id(project, table)}
-                            SET value = ?, event_ts = ?, created_ts = ?
-                            WHERE (entity_key = ? AND feature_name = ?)
-                        """,
-                        (
-                            # SET
-                            val.SerializeToString(),
-                            timestamp,
-                            created_ts,
-                            # WHERE
-                            entity_key_bin,
-                            feature_name,
-                        ),
+        rows = []
+        for entity_key, values, timestamp, created_ts in data:
+            entity_key_bin = serialize_entity_key(entity_key)
+            timestamp = _to_naive_utc(timestamp)
+            if created_ts is not None:
+                created_ts = _to_naive_utc(created_ts)
+
+            for feature_name, val in values.items():
+                rows.append(
+                    (
+                        entity_key_bin,
+                        feature_name,
+                        val.SerializeToString(),
+                        timestamp,
+                        created_ts,
                     )
+                )
 
-                    conn.execute(
-                        f"""INSERT OR IGNORE INTO {_table_id(project, table)}
-                            (entity_key, feature_name, value, event_ts, created_ts)
-                            VALUES (?, ?, ?, ?, ?)""",
-                        (
-                            entity_key_bin,
-                            feature_name,
-                            val.SerializeToString(),
-                            timestamp,
-                            created_ts,
-                        ),
-                    )
-                if progress:
-                    progress(1)
+        with self._write_lock, conn:
+            conn.executemany(_upsert_statement(_table_id(project, table)), rows)
+        if progress:
+            progress(len(data))
 
     def online_read(
         self,
@@ -134,35 +146,57 @@ class SqliteOnlineStore(OnlineStore):
         entity_keys: List[EntityKeyProto],
         requested_features: Optional[List[str]] = None,
     ) -> List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]:
-        pass
         conn = self._get_conn(config)
         cur = conn.cursor()
 
-        result: List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]] = []
-
         project = config.project
-        for entity_key in entity_keys:
-            entity_key_bin = serialize_entity_key(entity_key)
-
+        entity_keys_bin = [
+            serialize_entity_key(entity_key) for entity_key in entity_keys
+        ]
+
+        # Look the keys up in chunks with a single IN-list query each, and reassemble the rows per key
+        res_by_key: Dict[bytes, Dict[str, ValueProto]] = defaultdict(dict)
+        ts_by_key: Dict[bytes, datetime] = {}
+        for start in range(0, len(entity_keys_bin), READ_BATCH_SIZE):
+            batch = entity_keys_bin[start : start + READ_BATCH_SIZE]
             cur.execute(
-                f"SELECT feature_name, value, event_ts FROM {_table_id(project, table)} WHERE entity_key = ?",
-                (entity_key_bin,),
+                f"SELECT entity_key, feature_name, value, event_ts FROM {_table_id(project, table)} "
+                f"WHERE entity_key IN ({','.join('?' * len(batch))})",
+                batch,
             )
 
-            res = {}
-            res_ts = None
-            for feature_name, val_bin, ts in cur.fetchall():
+            for entity_key_bin, feature_name, val_bin, ts in cur.fetchall():
                 val = ValueProto()
                 val.ParseFromString(val_bin)
-                res[feature_name] = val
-                res_ts = ts
+                res_by_key[entity_key_bin][feature_name] = val
+                ts_by_key[entity_key_bin] = ts
 
+        result: List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]] = []
+        for entity_key_bin in entity_keys_bin:
+            res = res_by_key.get(entity_key_bin)
             if not res:
                 result.append((None, None))
             else:
-                result.append((res_ts, res))
+                result.append((ts_by_key[entity_key_bin], res))
         return result
 
+    async def online_read_async(
+        self,
+        config: RepoConfig,
+        table: Union[FeatureTable, FeatureView],
+        entity_keys: List[EntityKeyProto],
+        requested_features: Optional[List[str]] = None,
+    ) -> List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]:
+        # SQLite has no asyncio interface. Reads are run on a dedicated thread, which serializes access to
+        # the shared connection without tying up the default executor of the event loop.
+        if not self._async_executor:
+            self._async_executor = ThreadPoolExecutor(max_workers=1)
+        loop = asyncio.get_event_loop()
+        return await loop.run_in_executor(
+            self._async_executor,
+            partial(self.online_read, config, table, entity_keys, requested_features),
+        )
+
     def update(
         self,
         config: RepoConfig,
@@ -199,6 +233,24 @@ def _table_id(project: str, table: Union[FeatureTable, FeatureView]) -> str:
     return f"{project}_{table.name}"
 
 
+def _upsert_statement(table_id: str) -> str:
+    # UPSERT is only supported from SQLite 3.24 onwards. Since every column of the row is written, a REPLACE
+    # is equivalent on older versions.
+    if sqlite3.sqlite_version_info >= (3, 24, 0):
+        return f"""
+            INSERT INTO {table_id} (entity_key, feature_name, value, event_ts, created_ts)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT(entity_key, feature_name) DO UPDATE SET
+                value = excluded.value,
+                event_ts = excluded.event_ts,
+                created_ts = excluded.created_ts
+        """
+    return f"""
+        INSERT OR REPLACE INTO {table_id} (entity_key, feature_name, value, event_ts, created_ts)
+        VALUES (?, ?, ?, ?, ?)
+    """
+
+
 def _to_naive_utc(ts: datetime):
     if ts.tzinfo is None:
         return ts
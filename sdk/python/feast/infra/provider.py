@@ -1,7 +1,19 @@
 import abc
+import asyncio
+import multiprocessing
+import threading
+from concurrent.futures import (
+    FIRST_COMPLETED,
+    Future,
+    ProcessPoolExecutor,
+    as_completed,
+    wait,
+)
 from datetime import datetime
+from functools import partial
 from pathlib import Path
-from typing import Any, Callable, Dict, List, Optional, Sequence, Tuple, Union
+from queue import Full, Queue
+from typing import Any, Callable, Dict, List, Optional, Sequence, Set, Tuple, Union
 
 import pandas
 import pyarrow
@@ -12,11 +24,15 @@ from feast.entity import Entity
 from feast.feature_table import FeatureTable
 from feast.feature_view import FeatureView
 from feast.infra.offline_stores.offline_store import RetrievalJob
+from feast.protos.feast.core.FeatureView_pb2 import FeatureView as FeatureViewProto
 from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
 from feast.protos.feast.types.Value_pb2 import Value as ValueProto
 from feast.registry import Registry
 from feast.repo_config import RepoConfig
-from feast.type_map import python_value_to_proto_value
+from feast.type_map import pa_column_to_proto_values
+
+# Batch size used by materialization worker processes when config.materialization.batch_size isn't set
+DEFAULT_WORKER_BATCH_SIZE = 10000
 
 
 class Provider(abc.ABC):
@@ -137,6 +153,28 @@ class Provider(abc.ABC):
         """
         ...
 
+    async def online_read_async(
+        self,
+        config: RepoConfig,
+        table: Union[FeatureTable, FeatureView],
+        entity_keys: List[EntityKeyProto],
+        requested_features: List[str] = None,
+    ) -> List[Tuple[Optional[datetime], Optional[Dict[str, ValueProto]]]]:
+        """
+        Read feature values given an Entity Key without blocking the event loop. This is a low level
+        interface, not expected to be used by the users directly.
+
+        By default online_read is run on the default executor of the running event loop.
+
+        Returns:
+            Data is returned in the same format as online_read.
+        """
+        loop = asyncio.get_event_loop()
+        return await loop.run_in_executor(
+            None,
+            partial(self.online_read, config, table, entity_keys, requested_features),
+        )
+
 
 def get_provider(config: RepoConfig, repo_path: Path) -> Provider:
     if "." not in config.provider:
@@ -258,14 +296,217 @@ def _run_field_mapping(
     return table
 
 
+def _write_retrieval_job_to_online_store(
+    provider: Provider,
+    config: RepoConfig,
+    feature_view: FeatureView,
+    offline_job: RetrievalJob,
+    join_keys: List[str],
+    tqdm_builder: Callable[[int], tqdm],
+) -> None:
+    """
+    Converts the rows of an offline retrieval job to protos and writes them to the online store of the provider.
+
+    If config.materialization.batch_size is set, the job is read as a stream of record batches. A background
+    thread converts each batch while the previous ones are written, with at most config.materialization.queue_size
+    converted batches waiting in between, so that only a few batches are held in memory at any time.
+    """
+    if config.materialization.worker_processes is not None:
+        _write_retrieval_job_in_worker_processes(
+            provider, config, feature_view, offline_job, join_keys, tqdm_builder
+        )
+        return
+
+    field_mapping = feature_view.batch_source.field_mapping
+    batch_size = config.materialization.batch_size
+
+    if batch_size is None:
+        table = offline_job.to_arrow()
+        if field_mapping is not None:
+            table = _run_field_mapping(table, field_mapping)
+        rows_to_write = _convert_arrow_to_proto(table, feature_view, join_keys)
+
+        with tqdm_builder(len(rows_to_write)) as pbar:
+            provider.online_write_batch(
+                config, feature_view, rows_to_write, lambda x: pbar.update(x)
+            )
+        return
+
+    converted_batches: Queue = Queue(maxsize=config.materialization.queue_size)
+    stopped = threading.Event()
+    end_of_batches = object()
+
+    def put(item):
+        # Give up as soon as the writer stopped, instead of blocking on a queue nobody reads anymore
+        while not stopped.is_set():
+            try:
+                converted_batches.put(item, timeout=0.1)
+                return True
+            except Full:
+                continue
+        return False
+
+    def convert_batches():
+        try:
+            for batch in offline_job.to_arrow_batches(batch_size):
+                if batch.num_rows == 0:
+                    continue
+                table = pyarrow.Table.from_batches([batch])
+                if field_mapping is not None:
+                    table = _run_field_mapping(table, field_mapping)
+                if not put(_convert_arrow_to_proto(table, feature_view, join_keys)):
+                    return
+            put(end_of_batches)
+        except BaseException as e:
+            put(e)
+
+    converter = threading.Thread(target=convert_batches, daemon=True)
+    converter.start()
+    try:
+        # The amount of rows isn't known upfront, so the progress bar total grows as batches arrive
+        with tqdm_builder(0) as pbar:
+            while True:
+                rows_to_write = converted_batches.get()
+                if rows_to_write is end_of_batches:
+                    break
+                if isinstance(rows_to_write, BaseException):
+                    raise rows_to_write
+
+                pbar.total += len(rows_to_write)
+                pbar.refresh()
+                provider.online_write_batch(
+                    config, feature_view, rows_to_write, lambda x: pbar.update(x)
+                )
+    finally:
+        stopped.set()
+        converter.join()
+
+
+def _write_retrieval_job_in_worker_processes(
+    provider: Provider,
+    config: RepoConfig,
+    feature_view: FeatureView,
+    offline_job: RetrievalJob,
+    join_keys: List[str],
+    tqdm_builder: Callable[[int], tqdm],
+) -> None:
+    """
+    Converts and writes the record batches of an offline retrieval job in a pool of config.materialization
+    .worker_processes processes, so that conversion and protobuf serialization aren't bound by the GIL of a
+    single process. Every worker opens its own online store. Batches are sent to the workers in the Arrow IPC
+    format, and at most two batches per worker are in flight at any time.
+
+    Workers are spawned rather than forked, since the calling process may be running other threads. Their writes
+    bypass the provider, so the rows of the feature view held by its online cache are dropped afterwards.
+    """
+    worker_processes = config.materialization.worker_processes
+    assert worker_processes is not None
+    batch_size = config.materialization.batch_size or DEFAULT_WORKER_BATCH_SIZE
+    feature_view_proto = feature_view.to_proto().SerializeToString()
+
+    try:
+        with ProcessPoolExecutor(
+            max_workers=worker_processes,
+            mp_context=multiprocessing.get_context("spawn"),
+            initializer=_init_materialization_worker,
+            initargs=(config,),
+        ) as executor, tqdm_builder(0) as pbar:
+            in_flight: Set[Future] = set()
+            try:
+                for batch in offline_job.to_arrow_batches(batch_size):
+                    if batch.num_rows == 0:
+                        continue
+                    if len(in_flight) >= 2 * worker_processes:
+                        done, in_flight = wait(in_flight, return_when=FIRST_COMPLETED)
+                        for future in done:
+                            pbar.update(future.result())
+
+                    pbar.total += batch.num_rows
+                    pbar.refresh()
+                    in_flight.add(
+                        executor.submit(
+                            _write_ipc_batch,
+                            feature_view_proto,
+                            join_keys,
+                            _to_ipc_bytes(batch),
+                        )
+                    )
+
+                for future in as_completed(in_flight):
+                    pbar.update(future.result())
+            except BaseException:
+                # Batches that haven't started yet are dropped, instead of being waited for when the pool shuts down
+                for future in in_flight:
+                    future.cancel()
+                raise
+    finally:
+        _invalidate_online_cache(provider, config, feature_view)
+
+
+def _invalidate_online_cache(
+    provider: Provider, config: RepoConfig, feature_view: FeatureView
+):
+    # Imported here since the online stores import the feast package, which imports this module
+    from feast.infra.online_stores.cached import CachedOnlineStore
+
+    online_store = getattr(provider, "online_store", None)
+    if isinstance(online_store, CachedOnlineStore):
+        online_store.invalidate(config.project, feature_view)
+
+
+# State of a materialization worker process, set up once by _init_materialization_worker
+_worker_config: Optional[RepoConfig] = None
+_worker_online_store: Optional[Any] = None
+_worker_feature_views: Dict[bytes, FeatureView] = {}
+
+
+def _init_materialization_worker(config: RepoConfig):
+    # Imported here since the online stores import the feast package, which imports this module
+    from feast.infra.online_stores.helpers import get_online_store_from_config
+
+    global _worker_config, _worker_online_store
+    _worker_config = config
+    _worker_online_store = get_online_store_from_config(config.online_store)
+
+
+def _write_ipc_batch(
+    feature_view_proto: bytes, join_keys: List[str], ipc_bytes: bytes
+) -> int:
+    """Converts a record batch in a worker process and writes it to the online store of the worker."""
+    assert _worker_config is not None and _worker_online_store is not None
+
+    feature_view = _worker_feature_views.get(feature_view_proto)
+    if feature_view is None:
+        feature_view = FeatureView.from_proto(
+            FeatureViewProto.FromString(feature_view_proto)
+        )
+        _worker_feature_views[feature_view_proto] = feature_view
+
+    table = pyarrow.ipc.open_stream(ipc_bytes).read_all()
+    if feature_view.batch_source.field_mapping is not None:
+        table = _run_field_mapping(table, feature_view.batch_source.field_mapping)
+    rows_to_write = _convert_arrow_to_proto(table, feature_view, join_keys)
+
+    _worker_online_store.online_write_batch(
+        _worker_config, feature_view, rows_to_write, None
+    )
+    return len(rows_to_write)
+
+
+def _to_ipc_bytes(batch: pyarrow.RecordBatch) -> bytes:
+    sink = pyarrow.BufferOutputStream()
+    writer = pyarrow.ipc.new_stream(sink, batch.schema)
+    writer.write_batch(batch)
+    writer.close()
+    return sink.getvalue().to_pybytes()
+
+
 def _convert_arrow_to_proto(
     table: pyarrow.Table, feature_view: FeatureView, join_keys: List[str],
 ) -> List[Tuple[EntityKeyProto, Dict[str, ValueProto], datetime, Optional[datetime]]]:
-    rows_to_write = []
-
     def _coerce_datetime(ts):
         """
-        Depending on underlying time resolution, arrow to_pydict() sometimes returns pandas
+        Depending on underlying time resolution, arrow to_pylist() sometimes returns pandas
         timestamp type (for nanosecond resolution), and sometimes you get standard python datetime
         (for microsecond resolution).
 
@@ -279,32 +520,39 @@ def _convert_arrow_to_proto(
         else:
             return ts
 
-    for row in zip(*table.to_pydict().values()):
-        entity_key = EntityKeyProto()
-        for join_key in join_keys:
-            entity_key.join_keys.append(join_key)
-            idx = table.column_names.index(join_key)
-            value = python_value_to_proto_value(row[idx])
-            entity_key.entity_values.append(value)
-        feature_dict = {}
-        for feature in feature_view.features:
-            idx = table.column_names.index(feature.name)
-            value = python_value_to_proto_value(row[idx], feature.dtype)
-            feature_dict[feature.name] = value
-        event_timestamp_idx = table.column_names.index(
-            feature_view.batch_source.event_timestamp_column
-        )
-        event_timestamp = _coerce_datetime(row[event_timestamp_idx])
+    # Every column is looked up and converted once, rows are only assembled at the end
+    entity_columns = [
+        pa_column_to_proto_values(table.column(join_key)) for join_key in join_keys
+    ]
+    feature_names = [feature.name for feature in feature_view.features]
+    feature_columns = [
+        pa_column_to_proto_values(table.column(feature.name), feature.dtype)
+        for feature in feature_view.features
+    ]
 
-        if feature_view.batch_source.created_timestamp_column:
-            created_timestamp_idx = table.column_names.index(
-                feature_view.batch_source.created_timestamp_column
-            )
-            created_timestamp = _coerce_datetime(row[created_timestamp_idx])
-        else:
-            created_timestamp = None
+    batch_source = feature_view.batch_source
+    created_timestamps: List[Optional[datetime]]
+    event_timestamps = [
+        _coerce_datetime(ts)
+        for ts in table.column(batch_source.event_timestamp_column).to_pylist()
+    ]
+    if batch_source.created_timestamp_column:
+        created_timestamps = [
+            _coerce_datetime(ts)
+            for ts in table.column(batch_source.created_timestamp_column).to_pylist()
+        ]
+    else:
+        created_timestamps = [None] * table.num_rows
 
-        rows_to_write.append(
-            (entity_key, feature_dict, event_timestamp, created_timestamp)
-        )
-    return rows_to_write
+    entity_keys = [
+        EntityKeyProto(join_keys=join_keys, entity_values=entity_values)
+        for entity_values in zip(*entity_columns)
+    ]
+    if feature_columns:
+        feature_dicts = [
+            dict(zip(feature_names, values)) for values in zip(*feature_columns)
+        ]
+    else:
+        feature_dicts = [{} for _ in range(table.num_rows)]
+
+    return list(zip(entity_keys, feature_dicts, event_timestamps, created_timestamps))
@@ -346,6 +346,32 @@ def unload_redshift_query_to_pa(
         return pq.read_table(temp_dir)
 
 
+def read_s3_directory_as_pa_batches(
+    s3_resource, s3_path: str, batch_size: Optional[int] = None
+) -> Iterator[pa.RecordBatch]:
+    """
+    Download the Parquet files of an S3 directory one at a time and yield their rows as PyArrow RecordBatches,
+    one row group at a time, so that a single row group is held in memory. The S3 directory is deleted afterwards.
+    """
+    bucket, key = get_bucket_and_key(s3_path)
+    bucket_obj = s3_resource.Bucket(bucket)
+    prefix = key if key == "" or key.endswith("/") else key + "/"
+
+    try:
+        with tempfile.TemporaryDirectory() as temp_dir:
+            for obj in bucket_obj.objects.filter(Prefix=prefix):
+                local_file_path = os.path.join(temp_dir, str(uuid.uuid4()))
+                bucket_obj.download_file(obj.key, local_file_path)
+                parquet_file = pq.ParquetFile(local_file_path)
+                for i in range(parquet_file.num_row_groups):
+                    yield from parquet_file.read_row_group(i).to_batches(
+                        max_chunksize=batch_size
+                    )
+                os.remove(local_file_path)
+    finally:
+        delete_s3_directory(s3_resource, bucket, key)
+
+
 def unload_redshift_query_to_df(
     redshift_data_client,
     cluster_id: str,
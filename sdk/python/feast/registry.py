@@ -12,13 +12,18 @@
 # See the License for the specific language governing permissions and
 # limitations under the License.
 
+import copy
+import hashlib
+import logging
 import os
+import random
+import threading
 import uuid
 from abc import ABC, abstractmethod
 from datetime import datetime, timedelta
 from pathlib import Path
 from tempfile import TemporaryFile
-from typing import List, Optional
+from typing import Callable, Dict, List, Optional, Tuple
 from urllib.parse import urlparse
 
 from feast.entity import Entity
@@ -27,6 +32,7 @@ from feast.errors import (
     FeatureServiceNotFoundException,
     FeatureTableNotFoundException,
     FeatureViewNotFoundException,
+    RegistryUpdateConflict,
     S3RegistryBucketForbiddenAccess,
     S3RegistryBucketNotExist,
 )
@@ -37,6 +43,14 @@ from feast.protos.feast.core.Registry_pb2 import Registry as RegistryProto
 
 REGISTRY_SCHEMA_VERSION = "1"
 
+# Initial delay before retrying a failed background refresh of the registry cache, doubled after every failure
+BACKGROUND_REFRESH_RETRY_SECONDS = 1
+
+# Amount of times an update of the metadata of a feature view is retried when it conflicts with another writer
+UPDATE_CONFLICT_RETRIES = 3
+
+logger = logging.getLogger(__name__)
+
 
 class Registry:
     """
@@ -46,12 +60,22 @@ class Registry:
     # The cached_registry_proto object is used for both reads and writes. In particular,
     # all write operations refresh the cache and modify it in memory; the write must
     # then be persisted to the underlying RegistryStore with a call to commit().
+    # Reads are served from objects deserialized once per version of the registry and
+    # project, which are shared between callers and must not be modified.
     cached_registry_proto: Optional[RegistryProto] = None
     cached_registry_proto_created: Optional[datetime] = None
     cached_registry_proto_ttl: timedelta
     cache_being_updated: bool = False
 
-    def __init__(self, registry_path: str, repo_path: Path, cache_ttl: timedelta):
+    def __init__(
+        self,
+        registry_path: str,
+        repo_path: Path,
+        cache_ttl: timedelta,
+        background_refresh: bool = False,
+        max_staleness: Optional[timedelta] = None,
+        sharded: bool = False,
+    ):
         """
         Create the Registry object.
 
@@ -59,13 +83,31 @@ class Registry:
             repo_path: Path to the base of the Feast repository
             cache_ttl: The amount of time that cached registry state stays valid
             registry_path: filepath or GCS URI that is the location of the object store registry,
-            or where it will be created if it does not exist yet.
+            or where it will be created if it does not exist yet. A sqlite:// path stores the registry in a
+            SQLite database instead, with one row per registry object.
+            background_refresh: Whether to refresh the cache in a background thread ahead of its expiry, instead
+            of when reading from an expired cache. Reads keep being served from the cache while a refresh is in
+            flight or failing.
+            max_staleness: With background refresh, the maximum age of the cache that reads are served from. Past
+            it, reads fetch the registry synchronously again. Unbounded if not set.
+            sharded: Whether the registry is stored as one object per entity, feature table, feature view and
+            feature service, plus a manifest, in the registry_path directory.
         """
         uri = urlparse(registry_path)
-        if uri.scheme == "gs":
-            self._registry_store: RegistryStore = GCSRegistryStore(registry_path)
+        if sharded:
+            from feast.sharded_registry_store import ShardedRegistryStore
+
+            self._registry_store: RegistryStore = ShardedRegistryStore(
+                registry_path, repo_path
+            )
+        elif uri.scheme == "gs":
+            self._registry_store = GCSRegistryStore(registry_path)
         elif uri.scheme == "s3":
             self._registry_store = S3RegistryStore(registry_path)
+        elif uri.scheme == "sqlite":
+            from feast.sqlite_registry_store import SqliteRegistryStore
+
+            self._registry_store = SqliteRegistryStore(repo_path, registry_path)
         elif uri.scheme == "file" or uri.scheme == "":
             self._registry_store = LocalRegistryStore(
                 repo_path=repo_path, registry_path_string=registry_path
@@ -73,9 +115,21 @@ class Registry:
         else:
             raise Exception(
                 f"Registry path {registry_path} has unsupported scheme {uri.scheme}. "
-                f"Supported schemes are file and gs."
+                f"Supported schemes are file, gs, s3 and sqlite."
             )
         self.cached_registry_proto_ttl = cache_ttl
+        self._background_refresh = background_refresh
+        self._max_staleness = max_staleness
+        # Identifies the version of the registry held in the cache to the registry store, if the store supports it
+        self._cached_registry_proto_token: Optional[str] = None
+        self._refresh_thread: Optional[threading.Thread] = None
+        self._stop_refresh = threading.Event()
+        # Guards the cache against background refreshes while it holds changes that haven't been committed yet
+        self._cache_lock = threading.Lock()
+        self._uncommitted_changes = False
+        # Deserialized objects of the registry version identified by _objects_version_id, per project
+        self._objects: Dict[str, ProjectObjects] = {}
+        self._objects_version_id: Optional[str] = None
 
     def _initialize_registry(self):
         """Explicitly initializes the registry with an empty proto if it doesn't exist."""
@@ -126,12 +180,9 @@ class Registry:
         Returns:
             List of entities
         """
-        registry_proto = self._get_registry_proto(allow_cache=allow_cache)
-        entities = []
-        for entity_proto in registry_proto.entities:
-            if entity_proto.spec.project == project:
-                entities.append(Entity.from_proto(entity_proto))
-        return entities
+        return copy.deepcopy(
+            list(self.get_project_objects(project, allow_cache).entities.values())
+        )
 
     def apply_feature_service(
         self, feature_service: FeatureService, project: str, commit: bool = True
@@ -172,15 +223,11 @@ class Registry:
         Returns:
             List of feature services
         """
-
-        registry = self._get_registry_proto(allow_cache=allow_cache)
-        feature_services = []
-        for feature_service_proto in registry.feature_services:
-            if feature_service_proto.spec.project == project:
-                feature_services.append(
-                    FeatureService.from_proto(feature_service_proto)
-                )
-        return feature_services
+        return copy.deepcopy(
+            list(
+                self.get_project_objects(project, allow_cache).feature_services.values()
+            )
+        )
 
     def get_feature_service(
         self, name: str, project: str, allow_cache: bool = False
@@ -196,15 +243,9 @@ class Registry:
             Returns either the specified feature service, or raises an exception if
             none is found
         """
-        registry = self._get_registry_proto(allow_cache=allow_cache)
-
-        for feature_service_proto in registry.feature_services:
-            if (
-                feature_service_proto.spec.project == project
-                and feature_service_proto.spec.name == name
-            ):
-                return FeatureService.from_proto(feature_service_proto)
-        raise FeatureServiceNotFoundException(name, project=project)
+        return copy.deepcopy(
+            self.get_project_objects(project, allow_cache).get_feature_service(name)
+        )
 
     def get_entity(self, name: str, project: str, allow_cache: bool = False) -> Entity:
         """
@@ -218,11 +259,9 @@ class Registry:
             Returns either the specified entity, or raises an exception if
             none is found
         """
-        registry_proto = self._get_registry_proto(allow_cache=allow_cache)
-        for entity_proto in registry_proto.entities:
-            if entity_proto.spec.name == name and entity_proto.spec.project == project:
-                return Entity.from_proto(entity_proto)
-        raise EntityNotFoundException(name, project=project)
+        return copy.deepcopy(
+            self.get_project_objects(project, allow_cache).get_entity(name)
+        )
 
     def apply_feature_table(
         self, feature_table: FeatureTable, project: str, commit: bool = True
@@ -307,6 +346,74 @@ class Registry:
             end_date (datetime): End date of the materialization interval to track
             commit: Whether the change should be persisted immediately
         """
+
+        def record_interval(existing_feature_view: FeatureView):
+            existing_feature_view.materialization_intervals.append(
+                (start_date, end_date)
+            )
+            # Checkpoints of the shards inside the interval aren't needed anymore
+            existing_feature_view.materialization_checkpoints = [
+                checkpoint
+                for checkpoint in existing_feature_view.materialization_checkpoints
+                if checkpoint[0] < start_date or checkpoint[1] > end_date
+            ]
+
+        self._update_feature_view_meta(feature_view, project, record_interval, commit)
+
+    def apply_materialization_checkpoint(
+        self,
+        feature_view: FeatureView,
+        project: str,
+        start_date: datetime,
+        end_date: datetime,
+        commit: bool = True,
+    ):
+        """
+        Records that a time shard of a materialization that is still in progress has been written to the
+        online store, so that a rerun of the materialization can skip it.
+
+        Args:
+            feature_view: Feature view that will be updated with an additional materialization checkpoint
+            project: Feast project that this feature view belongs to
+            start_date (datetime): Start date of the completed time shard
+            end_date (datetime): End date of the completed time shard
+            commit: Whether the change should be persisted immediately
+        """
+
+        def record_checkpoint(existing_feature_view: FeatureView):
+            existing_feature_view.materialization_checkpoints.append(
+                (start_date, end_date)
+            )
+
+        self._update_feature_view_meta(feature_view, project, record_checkpoint, commit)
+
+    def _update_feature_view_meta(
+        self,
+        feature_view: FeatureView,
+        project: str,
+        update: Callable[[FeatureView], None],
+        commit: bool,
+    ):
+        for attempt in range(UPDATE_CONFLICT_RETRIES + 1):
+            try:
+                self._apply_feature_view_meta_update(
+                    feature_view, project, update, commit
+                )
+                return
+            except RegistryUpdateConflict:
+                # Another writer modified the feature view since the registry was read, e.g. a concurrent
+                # materialization of another time range. The update is applied again on top of its changes.
+                if attempt == UPDATE_CONFLICT_RETRIES:
+                    raise
+                self.refresh()
+
+    def _apply_feature_view_meta_update(
+        self,
+        feature_view: FeatureView,
+        project: str,
+        update: Callable[[FeatureView], None],
+        commit: bool,
+    ):
         self._prepare_registry_for_changes()
         assert self.cached_registry_proto
 
@@ -320,9 +427,7 @@ class Registry:
                 existing_feature_view = FeatureView.from_proto(
                     existing_feature_view_proto
                 )
-                existing_feature_view.materialization_intervals.append(
-                    (start_date, end_date)
-                )
+                update(existing_feature_view)
                 feature_view_proto = existing_feature_view.to_proto()
                 feature_view_proto.spec.project = project
                 del self.cached_registry_proto.feature_views[idx]
@@ -343,12 +448,9 @@ class Registry:
         Returns:
             List of feature tables
         """
-        registry_proto = self._get_registry_proto()
-        feature_tables = []
-        for feature_table_proto in registry_proto.feature_tables:
-            if feature_table_proto.spec.project == project:
-                feature_tables.append(FeatureTable.from_proto(feature_table_proto))
-        return feature_tables
+        return copy.deepcopy(
+            list(self.get_project_objects(project).feature_tables.values())
+        )
 
     def list_feature_views(
         self, project: str, allow_cache: bool = False
@@ -363,12 +465,9 @@ class Registry:
         Returns:
             List of feature views
         """
-        registry_proto = self._get_registry_proto(allow_cache=allow_cache)
-        feature_views = []
-        for feature_view_proto in registry_proto.feature_views:
-            if feature_view_proto.spec.project == project:
-                feature_views.append(FeatureView.from_proto(feature_view_proto))
-        return feature_views
+        return copy.deepcopy(
+            list(self.get_project_objects(project, allow_cache).feature_views.values())
+        )
 
     def get_feature_table(self, name: str, project: str) -> FeatureTable:
         """
@@ -382,14 +481,7 @@ class Registry:
             Returns either the specified feature table, or raises an exception if
             none is found
         """
-        registry_proto = self._get_registry_proto()
-        for feature_table_proto in registry_proto.feature_tables:
-            if (
-                feature_table_proto.spec.name == name
-                and feature_table_proto.spec.project == project
-            ):
-                return FeatureTable.from_proto(feature_table_proto)
-        raise FeatureTableNotFoundException(name, project)
+        return copy.deepcopy(self.get_project_objects(project).get_feature_table(name))
 
     def get_feature_view(self, name: str, project: str) -> FeatureView:
         """
@@ -403,14 +495,7 @@ class Registry:
             Returns either the specified feature view, or raises an exception if
             none is found
         """
-        registry_proto = self._get_registry_proto()
-        for feature_view_proto in registry_proto.feature_views:
-            if (
-                feature_view_proto.spec.name == name
-                and feature_view_proto.spec.project == project
-            ):
-                return FeatureView.from_proto(feature_view_proto)
-        raise FeatureViewNotFoundException(name, project)
+        return copy.deepcopy(self.get_project_objects(project).get_feature_view(name))
 
     def delete_feature_service(self, name: str, project: str, commit: bool = True):
         """
@@ -489,10 +574,28 @@ class Registry:
 
         raise FeatureViewNotFoundException(name, project)
 
+    def get_version_id(self, allow_cache: bool = False) -> str:
+        """
+        Retrieves the version id of the registry, which changes every time the registry is committed.
+
+        Args:
+            allow_cache: Whether to allow returning the version id of the cached registry
+
+        Returns:
+            The version id of the registry
+        """
+        return self._get_registry_proto(allow_cache=allow_cache).version_id
+
     def commit(self):
         """Commits the state of the registry cache to the remote registry store."""
         if self.cached_registry_proto:
-            self._registry_store.update_registry_proto(self.cached_registry_proto)
+            token = self._registry_store.update_registry_proto(
+                self.cached_registry_proto
+            )
+            with self._cache_lock:
+                self._cached_registry_proto_token = token
+        with self._cache_lock:
+            self._uncommitted_changes = False
 
     def refresh(self):
         """Refreshes the state of the registry cache by fetching the registry state from the remote registry store."""
@@ -502,6 +605,11 @@ class Registry:
         """Tears down (removes) the registry."""
         self._registry_store.teardown()
 
+    def stop_background_refresh(self):
+        """Stops refreshing the registry cache in the background. Expired caches are then refreshed on reads."""
+        self._stop_refresh.set()
+        self._refresh_thread = None
+
     def _prepare_registry_for_changes(self):
         """Prepares the Registry for changes by refreshing the cache if necessary."""
         try:
@@ -511,6 +619,8 @@ class Registry:
             registry_proto.registry_schema_version = REGISTRY_SCHEMA_VERSION
             self.cached_registry_proto = registry_proto
             self.cached_registry_proto_created = datetime.now()
+        with self._cache_lock:
+            self._uncommitted_changes = True
         return self.cached_registry_proto
 
     def _get_registry_proto(self, allow_cache: bool = False) -> RegistryProto:
@@ -531,21 +641,182 @@ class Registry:
                 > (self.cached_registry_proto_created + self.cached_registry_proto_ttl)
             )
         )
-        if allow_cache and (not expired or self.cache_being_updated):
+        if allow_cache and (
+            not expired or self.cache_being_updated or self._serves_stale_cache()
+        ):
             assert isinstance(self.cached_registry_proto, RegistryProto)
             return self.cached_registry_proto
 
         try:
             self.cache_being_updated = True
-            registry_proto = self._registry_store.get_registry_proto()
-            self.cached_registry_proto = registry_proto
-            self.cached_registry_proto_created = datetime.now()
+            registry_proto, token = self._fetch_registry_proto()
+            with self._cache_lock:
+                self.cached_registry_proto = registry_proto
+                self.cached_registry_proto_created = datetime.now()
+                self._cached_registry_proto_token = token
+                self._uncommitted_changes = False
         except Exception as e:
             raise e
         finally:
             self.cache_being_updated = False
+        self._start_background_refresh()
         return registry_proto
 
+    def get_project_objects(
+        self, project: str, allow_cache: bool = False
+    ) -> "ProjectObjects":
+        """
+        Returns the deserialized objects of a project, indexed by name. They are only deserialized once for
+        every version of the registry, unless the cache holds changes that haven't been committed yet.
+
+        The objects are shared by every read of the same version of the registry, and are only meant to be read
+        by Feast internals on hot paths. The other getters return copies that callers are free to modify.
+
+        Args:
+            project: Feast project whose objects are returned
+            allow_cache: Whether to allow returning objects from a cached registry
+        """
+        registry_proto = self._get_registry_proto(allow_cache=allow_cache)
+        with self._cache_lock:
+            if self._uncommitted_changes:
+                return ProjectObjects(registry_proto, project)
+
+            if self._objects_version_id != registry_proto.version_id:
+                self._objects = {}
+                self._objects_version_id = registry_proto.version_id
+            if project not in self._objects:
+                self._objects[project] = ProjectObjects(registry_proto, project)
+            return self._objects[project]
+
+    def _fetch_registry_proto(self) -> Tuple[RegistryProto, Optional[str]]:
+        """
+        Fetches the registry from the registry store, along with its token. The cached registry is reused instead
+        if the store reports that it hasn't been modified since, which skips its download and parsing.
+        """
+        with self._cache_lock:
+            cached_registry_proto = self.cached_registry_proto
+            token = (
+                None if self._uncommitted_changes else self._cached_registry_proto_token
+            )
+        if cached_registry_proto is None:
+            token = None
+
+        registry_proto, token = self._registry_store.get_registry_proto_if_modified(
+            token
+        )
+        if registry_proto is None:
+            assert cached_registry_proto is not None
+            return cached_registry_proto, token
+        return registry_proto, token
+
+    def _serves_stale_cache(self) -> bool:
+        """Whether reads are served from the cache while it's being refreshed in the background."""
+        if self._refresh_thread is None or self.cached_registry_proto_created is None:
+            return False
+        return self._max_staleness is None or (
+            datetime.now() <= self.cached_registry_proto_created + self._max_staleness
+        )
+
+    def _start_background_refresh(self):
+        if (
+            not self._background_refresh
+            or self.cached_registry_proto_ttl.total_seconds() <= 0
+        ):
+            return
+
+        with self._cache_lock:
+            if self._refresh_thread is not None or self._stop_refresh.is_set():
+                return
+            self._refresh_thread = threading.Thread(
+                target=self._refresh_in_background,
+                name="feast-registry-refresh",
+                daemon=True,
+            )
+            self._refresh_thread.start()
+
+    def _refresh_in_background(self):
+        failures = 0
+        while not self._stop_refresh.wait(self._next_refresh_delay(failures)):
+            try:
+                registry_proto, token = self._fetch_registry_proto()
+            except Exception:
+                failures += 1
+                logger.warning(
+                    "Failed to refresh the registry, serving the cached registry",
+                    exc_info=True,
+                )
+                continue
+
+            failures = 0
+            with self._cache_lock:
+                if not self._uncommitted_changes:
+                    self.cached_registry_proto = registry_proto
+                    self.cached_registry_proto_created = datetime.now()
+                    self._cached_registry_proto_token = token
+
+    def _next_refresh_delay(self, failures: int) -> float:
+        """
+        Returns the amount of seconds until the next background refresh. Refreshes are scheduled at a random point
+        ahead of the expiry of the cache, so that processes started together don't fetch the registry at once.
+        Failed refreshes are retried with a jittered exponential backoff.
+        """
+        ttl_seconds = self.cached_registry_proto_ttl.total_seconds()
+        if not failures:
+            return ttl_seconds * random.uniform(0.5, 0.9)
+        backoff_seconds = min(
+            ttl_seconds, BACKGROUND_REFRESH_RETRY_SECONDS * 2 ** (failures - 1)
+        )
+        return backoff_seconds * random.uniform(0.5, 1)
+
+
+class ProjectObjects:
+    """The deserialized objects of a project of a registry, indexed by name. They must not be modified."""
+
+    def __init__(self, registry_proto: RegistryProto, project: str):
+        self.project = project
+        self.entities: Dict[str, Entity] = {
+            entity_proto.spec.name: Entity.from_proto(entity_proto)
+            for entity_proto in registry_proto.entities
+            if entity_proto.spec.project == project
+        }
+        self.feature_tables: Dict[str, FeatureTable] = {
+            feature_table_proto.spec.name: FeatureTable.from_proto(feature_table_proto)
+            for feature_table_proto in registry_proto.feature_tables
+            if feature_table_proto.spec.project == project
+        }
+        self.feature_views: Dict[str, FeatureView] = {
+            feature_view_proto.spec.name: FeatureView.from_proto(feature_view_proto)
+            for feature_view_proto in registry_proto.feature_views
+            if feature_view_proto.spec.project == project
+        }
+        self.feature_services: Dict[str, FeatureService] = {
+            feature_service_proto.spec.name: FeatureService.from_proto(
+                feature_service_proto
+            )
+            for feature_service_proto in registry_proto.feature_services
+            if feature_service_proto.spec.project == project
+        }
+
+    def get_entity(self, name: str) -> Entity:
+        if name not in self.entities:
+            raise EntityNotFoundException(name, project=self.project)
+        return self.entities[name]
+
+    def get_feature_table(self, name: str) -> FeatureTable:
+        if name not in self.feature_tables:
+            raise FeatureTableNotFoundException(name, self.project)
+        return self.feature_tables[name]
+
+    def get_feature_view(self, name: str) -> FeatureView:
+        if name not in self.feature_views:
+            raise FeatureViewNotFoundException(name, self.project)
+        return self.feature_views[name]
+
+    def get_feature_service(self, name: str) -> FeatureService:
+        if name not in self.feature_services:
+            raise FeatureServiceNotFoundException(name, project=self.project)
+        return self.feature_services[name]
+
 
 class RegistryStore(ABC):
     """
@@ -565,16 +836,36 @@ class RegistryStore(ABC):
         pass
 
     @abstractmethod
-    def update_registry_proto(self, registry_proto: RegistryProto):
+    def update_registry_proto(self, registry_proto: RegistryProto) -> Optional[str]:
         """
         Overwrites the current registry proto with the proto passed in. This method
         writes to the registry path.
 
         Args:
             registry_proto: the new RegistryProto
+
+        Returns:
+            Returns the token identifying the written version of the registry, if the store supports
+            conditional fetches.
         """
         pass
 
+    def get_registry_proto_if_modified(
+        self, token: Optional[str]
+    ) -> Tuple[Optional[RegistryProto], Optional[str]]:
+        """
+        Retrieves the registry proto from the registry path, unless the version identified by the token
+        is still the current one. Stores that support it check this with a cheap metadata or conditional
+        request, which skips the download and parsing of unchanged registries.
+
+        Args:
+            token: The token of the version of the registry held by the caller, or None to always retrieve it
+
+        Returns:
+            Returns the registry proto, or None if it hasn't been modified, along with the token of its version.
+        """
+        return self.get_registry_proto(), None
+
     @abstractmethod
     def teardown(self):
         """
@@ -592,16 +883,28 @@ class LocalRegistryStore(RegistryStore):
             self._filepath = repo_path.joinpath(registry_path)
 
     def get_registry_proto(self):
+        registry_proto, _ = self.get_registry_proto_if_modified(None)
+        return registry_proto
+
+    def get_registry_proto_if_modified(self, token: Optional[str]):
+        # The hash of the contents of the file identifies its version. Reading a local file is cheap, unlike
+        # parsing it, and unlike its modification time the hash changes on rewrites within the same tick.
+        try:
+            registry_bytes = self._filepath.read_bytes()
+        except FileNotFoundError:
+            raise FileNotFoundError(
+                f'Registry not found at path "{self._filepath}". Have you run "feast apply"?'
+            )
+        current_token = _content_token(registry_bytes)
+        if token == current_token:
+            return None, current_token
+
         registry_proto = RegistryProto()
-        if self._filepath.exists():
-            registry_proto.ParseFromString(self._filepath.read_bytes())
-            return registry_proto
-        raise FileNotFoundError(
-            f'Registry not found at path "{self._filepath}". Have you run "feast apply"?'
-        )
+        registry_proto.ParseFromString(registry_bytes)
+        return registry_proto, current_token
 
     def update_registry_proto(self, registry_proto: RegistryProto):
-        self._write_registry(registry_proto)
+        return self._write_registry(registry_proto)
 
     def teardown(self):
         try:
@@ -616,7 +919,13 @@ class LocalRegistryStore(RegistryStore):
         registry_proto.last_updated.FromDatetime(datetime.utcnow())
         file_dir = self._filepath.parent
         file_dir.mkdir(exist_ok=True)
-        self._filepath.write_bytes(registry_proto.SerializeToString())
+        registry_bytes = registry_proto.SerializeToString()
+        self._filepath.write_bytes(registry_bytes)
+        return _content_token(registry_bytes)
+
+
+def _content_token(registry_bytes: bytes) -> str:
+    return hashlib.sha256(registry_bytes).hexdigest()
 
 
 class GCSRegistryStore(RegistryStore):
@@ -634,30 +943,35 @@ class GCSRegistryStore(RegistryStore):
         self._blob = self._uri.path.lstrip("/")
 
     def get_registry_proto(self):
-        from google.cloud import storage
-        from google.cloud.exceptions import NotFound
+        registry_proto, _ = self.get_registry_proto_if_modified(None)
+        return registry_proto
 
+    def get_registry_proto_if_modified(self, token: Optional[str]):
+        # The generation of the blob identifies its version, and is read with a single metadata request
+        blob = self.gcs_client.bucket(self._bucket).get_blob(
+            self._blob, client=self.gcs_client
+        )
+        if blob is None:
+            if self.gcs_client.lookup_bucket(self._bucket) is None:
+                raise Exception(
+                    f"No bucket named {self._bucket} exists; please create it first."
+                )
+            raise FileNotFoundError(
+                f'Registry not found at path "{self._uri.geturl()}". Have you run "feast apply"?'
+            )
+        if token == str(blob.generation):
+            return None, token
+
+        # The download is pinned to the generation of the metadata, even if the blob is overwritten meanwhile
         file_obj = TemporaryFile()
+        self.gcs_client.download_blob_to_file(blob, file_obj)
+        file_obj.seek(0)
         registry_proto = RegistryProto()
-        try:
-            bucket = self.gcs_client.get_bucket(self._bucket)
-        except NotFound:
-            raise Exception(
-                f"No bucket named {self._bucket} exists; please create it first."
-            )
-        if storage.Blob(bucket=bucket, name=self._blob).exists(self.gcs_client):
-            self.gcs_client.download_blob_to_file(
-                self._uri.geturl(), file_obj, timeout=30
-            )
-            file_obj.seek(0)
-            registry_proto.ParseFromString(file_obj.read())
-            return registry_proto
-        raise FileNotFoundError(
-            f'Registry not found at path "{self._uri.geturl()}". Have you run "feast apply"?'
-        )
+        registry_proto.ParseFromString(file_obj.read())
+        return registry_proto, str(blob.generation)
 
     def update_registry_proto(self, registry_proto: RegistryProto):
-        self._write_registry(registry_proto)
+        return self._write_registry(registry_proto)
 
     def teardown(self):
         from google.cloud.exceptions import NotFound
@@ -679,6 +993,7 @@ class GCSRegistryStore(RegistryStore):
         file_obj.write(registry_proto.SerializeToString())
         file_obj.seek(0)
         blob.upload_from_file(file_obj)
+        return str(blob.generation)
 
 
 class S3RegistryStore(RegistryStore):
@@ -698,39 +1013,42 @@ class S3RegistryStore(RegistryStore):
         )
 
     def get_registry_proto(self):
-        file_obj = TemporaryFile()
-        registry_proto = RegistryProto()
+        registry_proto, _ = self.get_registry_proto_if_modified(None)
+        return registry_proto
+
+    def get_registry_proto_if_modified(self, token: Optional[str]):
         try:
             from botocore.exceptions import ClientError
         except ImportError as e:
             from feast.errors import FeastExtrasDependencyImportError
 
             raise FeastExtrasDependencyImportError("aws", str(e))
+
+        # The ETag of the object identifies its version. S3 answers a conditional GET of an unchanged
+        # object with a 304 error, without sending the object.
+        conditions = {"IfNoneMatch": token} if token else {}
         try:
-            bucket = self.s3_client.Bucket(self._bucket)
-            self.s3_client.meta.client.head_bucket(Bucket=bucket.name)
+            response = self.s3_client.meta.client.get_object(
+                Bucket=self._bucket, Key=self._key, **conditions
+            )
         except ClientError as e:
-            # If a client error is thrown, then check that it was a 404 error.
-            # If it was a 404 error, then the bucket does not exist.
-            error_code = int(e.response["Error"]["Code"])
-            if error_code == 404:
+            error_code = e.response["Error"]["Code"]
+            if error_code == "304":
+                return None, token
+            if error_code == "NoSuchBucket":
                 raise S3RegistryBucketNotExist(self._bucket)
-            else:
+            if error_code in ("403", "AccessDenied"):
                 raise S3RegistryBucketForbiddenAccess(self._bucket) from e
-
-        try:
-            obj = bucket.Object(self._key)
-            obj.download_fileobj(file_obj)
-            file_obj.seek(0)
-            registry_proto.ParseFromString(file_obj.read())
-            return registry_proto
-        except ClientError as e:
             raise FileNotFoundError(
                 f"Error while trying to locate Registry at path {self._uri.geturl()}"
             ) from e
 
+        registry_proto = RegistryProto()
+        registry_proto.ParseFromString(response["Body"].read())
+        return registry_proto, response["ETag"]
+
     def update_registry_proto(self, registry_proto: RegistryProto):
-        self._write_registry(registry_proto)
+        return self._write_registry(registry_proto)
 
     def teardown(self):
         self.s3_client.Object(self._bucket, self._key).delete()
@@ -742,4 +1060,7 @@ class S3RegistryStore(RegistryStore):
         file_obj = TemporaryFile()
         file_obj.write(registry_proto.SerializeToString())
         file_obj.seek(0)
-        self.s3_client.Bucket(self._bucket).put_object(Body=file_obj, Key=self._key)
+        response = self.s3_client.meta.client.put_object(
+            Body=file_obj, Bucket=self._bucket, Key=self._key
+        )
+        return response["ETag"]
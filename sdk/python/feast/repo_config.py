@@ -2,7 +2,15 @@ from pathlib import Path
 from typing import Any
 
 import yaml
-from pydantic import BaseModel, StrictInt, StrictStr, ValidationError, root_validator
+from pydantic import (
+    BaseModel,
+    PositiveInt,
+    StrictBool,
+    StrictInt,
+    StrictStr,
+    ValidationError,
+    root_validator,
+)
 from pydantic.error_wrappers import ErrorWrapper
 from pydantic.typing import Dict, Optional, Union
 
@@ -46,7 +54,8 @@ class RegistryConfig(FeastBaseModel):
     """ Metadata Store Configuration. Configuration that relates to reading from and writing to the Feast registry."""
 
     path: StrictStr
-    """ str: Path to metadata store. Can be a local path, or remote object storage path, e.g. a GCS URI """
+    """ str: Path to metadata store. Can be a local path, or remote object storage path, e.g. a GCS URI, or a
+    SQLite database path prefixed by sqlite:// """
 
     cache_ttl_seconds: StrictInt = 600
     """int: The cache TTL is the amount of time registry state will be cached in memory. If this TTL is exceeded then
@@ -54,6 +63,61 @@ class RegistryConfig(FeastBaseModel):
      set to infinity by setting TTL to 0 seconds, which means the cache will only be loaded once and will never
      expire. Users can manually refresh the cache by calling feature_store.refresh_registry() """
 
+    background_refresh: StrictBool = False
+    """bool: Whether to refresh the registry cache in a background thread ahead of the cache TTL, instead of when
+     a feature store method asks for registry state after the TTL. The cached registry keeps being served while a
+     refresh is in flight or failing, so that long-running serving processes never block on the registry """
+
+    max_staleness_seconds: Optional[PositiveInt] = None
+    """(optional) int: With background refresh, the maximum age of the cached registry that is served while the
+     refreshes keep failing. Past it, the registry is downloaded synchronously again. Unbounded if not set """
+
+    sharded: StrictBool = False
+    """bool: Whether to store the registry as one object per entity, feature table, feature view and feature
+     service plus a manifest, with the path as their directory. Commits then only write the objects that changed,
+     and refreshes only download those """
+
+
+class OnlineCacheConfig(FeastConfigBaseModel):
+    """ Configuration of the in-process cache kept in front of the online store """
+
+    max_entries: PositiveInt = 100000
+    """ int: Maximum amount of entity rows held in the cache, least recently used rows are evicted first """
+
+    ttl_seconds: StrictInt = 60
+    """ int: Amount of time a row read from the online store is served from the cache. Rows are never cached
+     beyond the ttl of their feature view """
+
+    feature_view_ttl_seconds: Dict[StrictStr, StrictInt] = {}
+    """ (optional) Dict[str, int]: Per feature view overrides of ttl_seconds, keyed by feature view name """
+
+
+class MaterializationConfig(FeastConfigBaseModel):
+    """ Configuration of how rows are moved from the offline store to the online store """
+
+    batch_size: Optional[PositiveInt] = None
+    """ (optional) int: When set, materialization streams the rows of the offline store in batches of this many
+     rows, converting and writing them one batch at a time. Peak memory is then bounded by the batch size instead
+     of by the size of the materialized time window. Defaults to loading the whole window at once """
+
+    queue_size: PositiveInt = 2
+    """ int: Maximum amount of converted batches waiting to be written to the online store when streaming """
+
+    concurrency: PositiveInt = 1
+    """ int: Maximum amount of feature views and time shards materialized at the same time """
+
+    shard_duration_seconds: Optional[PositiveInt] = None
+    """ (optional) int: When set, the time range of every feature view is split into shards of this duration,
+     which are pulled from the offline store and written separately """
+
+    checkpoint: StrictBool = False
+    """ bool: Whether every completed time shard is recorded in the registry, so that rerunning an interrupted
+     materialization skips the shards that were already written. Only useful with shard_duration_seconds """
+
+    worker_processes: Optional[PositiveInt] = None
+    """ (optional) int: When set, record batches are converted and written to the online store by this many
+     worker processes, each with its own online store client """
+
 
 class RepoConfig(FeastBaseModel):
     """ Repo config. Typically loaded from `feature_store.yaml` """
@@ -76,6 +140,16 @@ class RepoConfig(FeastBaseModel):
     offline_store: Any
     """ OfflineStoreConfig: Offline store configuration (optional depending on provider) """
 
+    online_read_concurrency: PositiveInt = 8
+    """ int: Maximum amount of feature views read from the online store in parallel when retrieving online
+     features """
+
+    online_cache: Optional[OnlineCacheConfig] = None
+    """ OnlineCacheConfig: Configuration of the in-process online read cache (optional, disabled by default) """
+
+    materialization: MaterializationConfig = MaterializationConfig()
+    """ MaterializationConfig: Configuration of materialization into the online store """
+
     repo_path: Optional[Path] = None
 
     def __init__(self, **data: Any):
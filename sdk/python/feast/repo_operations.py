@@ -303,6 +303,7 @@ def registry_dump(repo_config: RepoConfig, repo_path: Path):
         registry_path=registry_config.path,
         repo_path=repo_path,
         cache_ttl=timedelta(seconds=registry_config.cache_ttl_seconds),
+        sharded=registry_config.sharded,
     )
 
     for entity in registry.list_entities(project=project):
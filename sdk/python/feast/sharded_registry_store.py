@@ -0,0 +1,339 @@
+# Copyright 2021 The Feast Authors
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#     https://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+import hashlib
+import os
+import uuid
+from abc import ABC, abstractmethod
+from concurrent.futures import ThreadPoolExecutor
+from datetime import datetime, timedelta
+from pathlib import Path
+from typing import Dict, Optional, Set
+from urllib.parse import urlparse
+
+from google.protobuf.message import Message
+
+from feast.protos.feast.core.Entity_pb2 import Entity as EntityProto
+from feast.protos.feast.core.FeatureService_pb2 import (
+    FeatureService as FeatureServiceProto,
+)
+from feast.protos.feast.core.FeatureTable_pb2 import FeatureTable as FeatureTableProto
+from feast.protos.feast.core.FeatureView_pb2 import FeatureView as FeatureViewProto
+from feast.protos.feast.core.Registry_pb2 import Registry as RegistryProto
+from feast.protos.feast.core.Registry_pb2 import (
+    RegistryManifest as RegistryManifestProto,
+)
+from feast.registry import RegistryStore
+
+MANIFEST_KEY = "manifest.pb"
+
+# Fields of the Registry message stored as one shard per object, with the message type of their objects
+SHARD_KINDS = {
+    "entities": EntityProto,
+    "feature_tables": FeatureTableProto,
+    "feature_views": FeatureViewProto,
+    "feature_services": FeatureServiceProto,
+}
+
+# Amount of shards downloaded concurrently when refreshing the registry
+SHARD_DOWNLOAD_CONCURRENCY = 16
+
+# Shards dropped from the manifest are only deleted once they've been retired for this long, so that the
+# manifests of concurrent commits that are still in progress, and readers of older manifests, can reference them
+SHARD_GC_GRACE_SECONDS = 3600
+
+
+class ShardedRegistryStore(RegistryStore):
+    """
+    Stores the registry as one object per entity, feature table, feature view and feature service under the
+    registry path, plus a manifest listing them. Shards are keyed by a hash of their content, so commits only
+    upload the shards that changed before swapping the manifest, and refreshes only download the shards that
+    aren't held in memory yet. Shards that are no longer referenced are garbage collected after a grace period.
+    """
+
+    def __init__(self, registry_path: str, repo_path: Path):
+        uri = urlparse(registry_path)
+        if uri.scheme == "gs":
+            self._objects: _ObjectStore = _GCSObjectStore(uri.hostname, uri.path)
+        elif uri.scheme == "s3":
+            self._objects = _S3ObjectStore(uri.hostname, uri.path)
+        elif uri.scheme == "file" or uri.scheme == "":
+            directory = Path(uri.path)
+            if not directory.is_absolute():
+                directory = repo_path.joinpath(directory)
+            self._objects = _LocalObjectStore(directory)
+        else:
+            raise Exception(
+                f"Registry path {registry_path} has unsupported scheme {uri.scheme}. "
+                f"Supported schemes are file, gs and s3."
+            )
+        self._registry_path = registry_path
+        # Shards of the last manifest that was read or written, by key
+        self._shards: Dict[str, Message] = {}
+
+    def get_registry_proto(self):
+        registry_proto, _ = self.get_registry_proto_if_modified(None)
+        return registry_proto
+
+    def get_registry_proto_if_modified(self, token: Optional[str]):
+        # The version id of the manifest identifies the version of the registry
+        try:
+            manifest = self._read_manifest()
+        except FileNotFoundError:
+            raise FileNotFoundError(
+                f'Registry not found at path "{self._registry_path}". Have you run "feast apply"?'
+            )
+        if token == manifest.version_id:
+            return None, token
+
+        try:
+            shards = self._read_shards(manifest)
+        except FileNotFoundError:
+            # Shards of the manifest that was read were garbage collected meanwhile, the new manifest
+            # references the current ones
+            manifest = self._read_manifest()
+            shards = self._read_shards(manifest)
+
+        registry_proto = RegistryProto()
+        registry_proto.registry_schema_version = manifest.registry_schema_version
+        registry_proto.version_id = manifest.version_id
+        registry_proto.last_updated.CopyFrom(manifest.last_updated)
+        for shard in manifest.shards:
+            getattr(registry_proto, shard.kind).append(shards[shard.key])
+        self._shards = shards
+        return registry_proto, manifest.version_id
+
+    def update_registry_proto(self, registry_proto: RegistryProto):
+        registry_proto.version_id = str(uuid.uuid4())
+        registry_proto.last_updated.FromDatetime(datetime.utcnow())
+
+        try:
+            previous_manifest = self._read_manifest()
+        except FileNotFoundError:
+            previous_manifest = RegistryManifestProto()
+        previous_keys = {shard.key for shard in previous_manifest.shards}
+
+        manifest = RegistryManifestProto()
+        manifest.registry_schema_version = registry_proto.registry_schema_version
+        manifest.version_id = registry_proto.version_id
+        manifest.last_updated.CopyFrom(registry_proto.last_updated)
+        shards: Dict[str, Message] = {}
+        for kind in SHARD_KINDS:
+            for message in getattr(registry_proto, kind):
+                data = message.SerializeToString(deterministic=True)
+                key = f"{kind}/{hashlib.sha256(data).hexdigest()}.pb"
+                if key not in shards:
+                    if key not in previous_keys:
+                        self._objects.write(key, data)
+                    # The registry proto keeps being modified in place by later changes
+                    shard = SHARD_KINDS[kind]()
+                    shard.CopyFrom(message)
+                    shards[key] = shard
+                manifest.shards.add(
+                    kind=kind,
+                    project=message.spec.project,
+                    name=message.spec.name,
+                    key=key,
+                )
+        expired_keys = self._retire_shards(
+            previous_manifest, manifest, registry_proto.last_updated.ToDatetime()
+        )
+
+        # The manifest is only written once all of its shards are, so readers never see a partial registry
+        self._objects.write(MANIFEST_KEY, manifest.SerializeToString())
+        self._shards = shards
+        for key in expired_keys:
+            self._objects.delete(key)
+        return manifest.version_id
+
+    def teardown(self):
+        try:
+            manifest = self._read_manifest()
+        except FileNotFoundError:
+            return
+        self._objects.delete(MANIFEST_KEY)
+        for shard in manifest.shards:
+            self._objects.delete(shard.key)
+        for retired_shard in manifest.retired_shards:
+            self._objects.delete(retired_shard.key)
+        self._shards = {}
+
+    def _read_manifest(self) -> RegistryManifestProto:
+        manifest = RegistryManifestProto()
+        manifest.ParseFromString(self._objects.read(MANIFEST_KEY))
+        return manifest
+
+    def _read_shards(self, manifest: RegistryManifestProto) -> Dict[str, Message]:
+        """Returns the shards of the manifest by key, only downloading the ones that aren't held yet."""
+        shards = {
+            shard.key: self._shards[shard.key]
+            for shard in manifest.shards
+            if shard.key in self._shards
+        }
+        missing_shards = [shard for shard in manifest.shards if shard.key not in shards]
+        if not missing_shards:
+            return shards
+
+        with ThreadPoolExecutor(
+            max_workers=min(SHARD_DOWNLOAD_CONCURRENCY, len(missing_shards))
+        ) as executor:
+            downloads = executor.map(
+                lambda shard: self._objects.read(shard.key), missing_shards
+            )
+            for shard, data in zip(missing_shards, downloads):
+                message = SHARD_KINDS[shard.kind]()
+                message.ParseFromString(data)
+                shards[shard.key] = message
+        return shards
+
+    def _retire_shards(
+        self,
+        previous_manifest: RegistryManifestProto,
+        manifest: RegistryManifestProto,
+        now: datetime,
+    ) -> Set[str]:
+        """
+        Records the shards that the previous manifest references and the manifest doesn't as retired in the
+        manifest, along with the ones retired earlier. Returns the keys of the shards retired for longer than the
+        grace period, which are left out of the manifest and can be deleted once it's written.
+        """
+        retired_at = {
+            retired_shard.key: retired_shard.retired_at.ToDatetime()
+            for retired_shard in previous_manifest.retired_shards
+        }
+        for shard in previous_manifest.shards:
+            retired_at[shard.key] = now
+
+        referenced_keys = {shard.key for shard in manifest.shards}
+        expired_keys = set()
+        for key, shard_retired_at in retired_at.items():
+            if key in referenced_keys:
+                continue
+            if now - shard_retired_at > timedelta(seconds=SHARD_GC_GRACE_SECONDS):
+                expired_keys.add(key)
+            else:
+                manifest.retired_shards.add(key=key).retired_at.FromDatetime(
+                    shard_retired_at
+                )
+        return expired_keys
+
+
+class _ObjectStore(ABC):
+    """Object storage holding the manifest and shards of a registry, by key relative to the registry path."""
+
+    @abstractmethod
+    def read(self, key: str) -> bytes:
+        """Reads an object, raising a FileNotFoundError if it doesn't exist."""
+        pass
+
+    @abstractmethod
+    def write(self, key: str, data: bytes):
+        pass
+
+    @abstractmethod
+    def delete(self, key: str):
+        """Deletes an object, if it exists."""
+        pass
+
+
+class _LocalObjectStore(_ObjectStore):
+    def __init__(self, directory: Path):
+        self._directory = directory
+
+    def read(self, key: str) -> bytes:
+        return self._directory.joinpath(key).read_bytes()
+
+    def write(self, key: str, data: bytes):
+        path = self._directory.joinpath(key)
+        path.parent.mkdir(parents=True, exist_ok=True)
+        # Objects are replaced atomically, so that readers never see a partially written manifest
+        temp_path = path.with_name(f".{path.name}.{uuid.uuid4()}")
+        temp_path.write_bytes(data)
+        os.replace(temp_path, path)
+
+    def delete(self, key: str):
+        try:
+            self._directory.joinpath(key).unlink()
+        except FileNotFoundError:
+            pass
+
+
+class _GCSObjectStore(_ObjectStore):
+    def __init__(self, bucket: str, path: str):
+        try:
+            from google.cloud import storage
+        except ImportError as e:
+            from feast.errors import FeastExtrasDependencyImportError
+
+            raise FeastExtrasDependencyImportError("gcp", str(e))
+
+        self._bucket = storage.Client().bucket(bucket)
+        self._prefix = _prefix(path)
+
+    def read(self, key: str) -> bytes:
+        from google.cloud.exceptions import NotFound
+
+        try:
+            return self._bucket.blob(self._prefix + key).download_as_string()
+        except NotFound:
+            raise FileNotFoundError(f"gs://{self._bucket.name}/{self._prefix}{key}")
+
+    def write(self, key: str, data: bytes):
+        self._bucket.blob(self._prefix + key).upload_from_string(data)
+
+    def delete(self, key: str):
+        from google.cloud.exceptions import NotFound
+
+        try:
+            self._bucket.delete_blob(self._prefix + key)
+        except NotFound:
+            pass
+
+
+class _S3ObjectStore(_ObjectStore):
+    def __init__(self, bucket: str, path: str):
+        try:
+            import boto3
+        except ImportError as e:
+            from feast.errors import FeastExtrasDependencyImportError
+
+            raise FeastExtrasDependencyImportError("aws", str(e))
+
+        self._bucket = bucket
+        self._prefix = _prefix(path)
+        self._s3_client = boto3.client(
+            "s3", endpoint_url=os.environ.get("FEAST_S3_ENDPOINT_URL")
+        )
+
+    def read(self, key: str) -> bytes:
+        try:
+            response = self._s3_client.get_object(
+                Bucket=self._bucket, Key=self._prefix + key
+            )
+        except self._s3_client.exceptions.NoSuchKey:
+            raise FileNotFoundError(f"s3://{self._bucket}/{self._prefix}{key}")
+        return response["Body"].read()
+
+    def write(self, key: str, data: bytes):
+        self._s3_client.put_object(
+            Body=data, Bucket=self._bucket, Key=self._prefix + key
+        )
+
+    def delete(self, key: str):
+        self._s3_client.delete_object(Bucket=self._bucket, Key=self._prefix + key)
+
+
+def _prefix(path: str) -> str:
+    """Returns the prefix of the keys of the objects under a registry path of an object storage URI."""
+    prefix = path.strip("/")
+    return prefix + "/" if prefix else ""
@@ -0,0 +1,273 @@
+# Copyright 2021 The Feast Authors
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#     https://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+import sqlite3
+import threading
+import uuid
+from collections import OrderedDict
+from datetime import datetime
+from pathlib import Path
+from typing import Dict, Optional, Tuple
+
+from google.protobuf.message import Message
+
+from feast.errors import RegistryUpdateConflict
+from feast.protos.feast.core.Registry_pb2 import Registry as RegistryProto
+from feast.registry import RegistryStore
+from feast.sharded_registry_store import SHARD_KINDS
+
+# Kind, project and name of a registry object
+_ObjectKey = Tuple[str, str, str]
+
+OBJECT_TYPES = {
+    "entities": "entity",
+    "feature_tables": "feature table",
+    "feature_views": "feature view",
+    "feature_services": "feature service",
+}
+
+# Amount of versions of the registry read or written by the store whose rows are kept to detect conflicts
+MAX_TRACKED_VERSIONS = 4
+
+SCHEMA = """
+CREATE TABLE IF NOT EXISTS registry_objects (
+    kind TEXT NOT NULL,
+    project TEXT NOT NULL,
+    name TEXT NOT NULL,
+    version INTEGER NOT NULL,
+    proto BLOB NOT NULL,
+    PRIMARY KEY (kind, project, name)
+);
+CREATE TABLE IF NOT EXISTS registry_state (
+    id INTEGER PRIMARY KEY CHECK (id = 0),
+    change_counter INTEGER NOT NULL,
+    registry_schema_version TEXT NOT NULL,
+    version_id TEXT NOT NULL,
+    last_updated INTEGER NOT NULL
+);
+"""
+
+
+class _RegistryVersion:
+    """The rows of a version of the registry, with the change counter of the database it was read at."""
+
+    def __init__(
+        self, change_counter: int, rows: Dict[_ObjectKey, Tuple[int, bytes]]
+    ):
+        self.change_counter = change_counter
+        # Version and serialized proto of every object, by key
+        self.rows = rows
+
+
+class SqliteRegistryStore(RegistryStore):
+    """
+    Stores the registry in a SQLite database in WAL mode, with one row per entity, feature table, feature view and
+    feature service. Commits only upsert or delete the rows of the objects changed since the registry was read,
+    guarded by the version of those rows: concurrent writers changing different objects don't overwrite each
+    other, while a writer changing an object that was changed by another one since it was read gets a
+    RegistryUpdateConflict. Readers check whether the registry changed with a query of its change counter.
+
+    The registry path is the path of the database file, prefixed by sqlite://.
+    """
+
+    def __init__(self, repo_path: Path, registry_path: str):
+        db_path = Path(registry_path[len("sqlite://") :])
+        if not db_path.is_absolute():
+            db_path = repo_path.joinpath(db_path)
+        self._db_path = db_path
+        self._lock = threading.Lock()
+        self._versions: "OrderedDict[str, _RegistryVersion]" = OrderedDict()
+        # Parsed objects of the last read, along with their serialized proto, to skip parsing unchanged rows
+        self._parsed: Dict[_ObjectKey, Tuple[bytes, Message]] = {}
+
+    def get_registry_proto(self):
+        registry_proto, _ = self.get_registry_proto_if_modified(None)
+        return registry_proto
+
+    def get_registry_proto_if_modified(self, token: Optional[str]):
+        if not self._db_path.exists():
+            raise self._not_found()
+
+        connection = self._connect()
+        try:
+            # The state and the rows are read from the same snapshot of the database
+            connection.execute("BEGIN")
+            state = connection.execute(
+                "SELECT change_counter, registry_schema_version, version_id, last_updated "
+                "FROM registry_state"
+            ).fetchone()
+            if state is None:
+                raise self._not_found()
+            change_counter, registry_schema_version, version_id, last_updated = state
+            if token == str(change_counter):
+                return None, token
+
+            rows = connection.execute(
+                "SELECT kind, project, name, version, proto FROM registry_objects ORDER BY rowid"
+            ).fetchall()
+        finally:
+            connection.close()
+
+        registry_proto = RegistryProto()
+        registry_proto.registry_schema_version = registry_schema_version
+        registry_proto.version_id = version_id
+        registry_proto.last_updated.FromNanoseconds(last_updated)
+
+        version_rows = {}
+        parsed = {}
+        with self._lock:
+            for kind, project, name, version, data in rows:
+                key = (kind, project, name)
+                cached = self._parsed.get(key)
+                if cached is not None and cached[0] == data:
+                    message = cached[1]
+                else:
+                    message = SHARD_KINDS[kind]()
+                    message.ParseFromString(data)
+                getattr(registry_proto, kind).append(message)
+                parsed[key] = (data, message)
+                version_rows[key] = (version, data)
+            self._parsed = parsed
+            self._track_version(
+                version_id, _RegistryVersion(change_counter, version_rows)
+            )
+        return registry_proto, str(change_counter)
+
+    def update_registry_proto(self, registry_proto: RegistryProto):
+        with self._lock:
+            base = self._versions.get(registry_proto.version_id)
+
+        registry_proto.version_id = str(uuid.uuid4())
+        registry_proto.last_updated.FromDatetime(datetime.utcnow())
+        rows = {
+            (kind, message.spec.project, message.spec.name): message.SerializeToString(
+                deterministic=True
+            )
+            for kind in SHARD_KINDS
+            for message in getattr(registry_proto, kind)
+        }
+
+        connection = self._connect()
+        try:
+            # Writers are serialized by the lock taken by BEGIN IMMEDIATE
+            connection.execute("BEGIN IMMEDIATE")
+            state = connection.execute(
+                "SELECT change_counter FROM registry_state"
+            ).fetchone()
+            change_counter = state[0] if state else 0
+            if base is None:
+                # The registry wasn't read by this store, so it overwrites the current rows
+                base = _RegistryVersion(
+                    change_counter,
+                    {
+                        (kind, project, name): (version, data)
+                        for kind, project, name, version, data in connection.execute(
+                            "SELECT kind, project, name, version, proto FROM registry_objects"
+                        )
+                    },
+                )
+
+            written_rows = dict(base.rows)
+            for key, data in rows.items():
+                if key not in base.rows:
+                    try:
+                        connection.execute(
+                            "INSERT INTO registry_objects (kind, project, name, version, proto) "
+                            "VALUES (?, ?, ?, 1, ?)",
+                            (*key, data),
+                        )
+                    except sqlite3.IntegrityError:
+                        raise _conflict(key)
+                    written_rows[key] = (1, data)
+                    continue
+
+                version, base_data = base.rows[key]
+                if data == base_data:
+                    continue
+                cursor = connection.execute(
+                    "UPDATE registry_objects SET version = version + 1, proto = ? "
+                    "WHERE kind = ? AND project = ? AND name = ? AND version = ?",
+                    (data, *key, version),
+                )
+                if cursor.rowcount == 0:
+                    raise _conflict(key)
+                written_rows[key] = (version + 1, data)
+
+            for key in base.rows.keys() - rows.keys():
+                version, _ = base.rows[key]
+                cursor = connection.execute(
+                    "DELETE FROM registry_objects "
+                    "WHERE kind = ? AND project = ? AND name = ? AND version = ?",
+                    (*key, version),
+                )
+                if cursor.rowcount == 0:
+                    raise _conflict(key)
+                del written_rows[key]
+
+            connection.execute(
+                "INSERT OR REPLACE INTO registry_state "
+                "(id, change_counter, registry_schema_version, version_id, last_updated) "
+                "VALUES (0, ?, ?, ?, ?)",
+                (
+                    change_counter + 1,
+                    registry_proto.registry_schema_version,
+                    registry_proto.version_id,
+                    registry_proto.last_updated.ToNanoseconds(),
+                ),
+            )
+            connection.execute("COMMIT")
+        finally:
+            # Closing the connection rolls back the transaction if it wasn't committed
+            connection.close()
+
+        with self._lock:
+            self._track_version(
+                registry_proto.version_id,
+                _RegistryVersion(change_counter + 1, written_rows),
+            )
+        if change_counter != base.change_counter:
+            # Other writers committed changes to other objects since the registry was read, which the written
+            # registry doesn't hold. No token is returned so that the next refresh reads them.
+            return None
+        return str(change_counter + 1)
+
+    def teardown(self):
+        for suffix in ["", "-wal", "-shm"]:
+            try:
+                Path(str(self._db_path) + suffix).unlink()
+            except FileNotFoundError:
+                pass
+
+    def _connect(self) -> sqlite3.Connection:
+        self._db_path.parent.mkdir(parents=True, exist_ok=True)
+        connection = sqlite3.connect(
+            str(self._db_path), timeout=30, isolation_level=None
+        )
+        connection.execute("PRAGMA journal_mode=WAL")
+        connection.executescript(SCHEMA)
+        return connection
+
+    def _track_version(self, version_id: str, version: _RegistryVersion):
+        self._versions[version_id] = version
+        while len(self._versions) > MAX_TRACKED_VERSIONS:
+            self._versions.popitem(last=False)
+
+    def _not_found(self) -> FileNotFoundError:
+        return FileNotFoundError(
+            f'Registry not found at path "{self._db_path}". Have you run "feast apply"?'
+        )
+
+
+def _conflict(key: _ObjectKey) -> RegistryUpdateConflict:
+    kind, project, name = key
+    return RegistryUpdateConflict(OBJECT_TYPES[kind], name, project)
@@ -13,10 +13,11 @@
 # limitations under the License.
 
 import re
-from typing import Any, Dict, Union
+from typing import Any, Dict, List, Optional, Union
 
 import numpy as np
 import pandas as pd
+import pyarrow
 from google.protobuf.json_format import MessageToDict
 
 from feast.protos.feast.types.Value_pb2 import (
@@ -308,6 +309,83 @@ def python_value_to_proto_value(
     return _python_value_to_proto_value(value_type, value)
 
 
+def pa_column_to_proto_values(
+    column: Union[pyarrow.Array, pyarrow.ChunkedArray],
+    feature_type: Optional[ValueType] = None,
+) -> List[ProtoValue]:
+    """
+    Converts a whole Arrow column to Feast Proto Values. The Arrow type is inspected once for the whole
+    column instead of once per value, and the values are the same as calling python_value_to_proto_value on
+    every item of the column. Integer lists and missing entity values, which that path rejects, are converted
+    as well. Types without a dedicated conversion fall back to the row by row path.
+
+    Args:
+        column: Arrow column to convert
+        feature_type: The value type of the column, used for missing values
+
+    Returns:
+        List of Feast Proto Values, one per item of the column
+    """
+    pa_type = column.type
+    values = column.to_pylist()
+
+    if pyarrow.types.is_integer(pa_type):
+        return [ProtoValue() if v is None else ProtoValue(int64_val=v) for v in values]
+    if pyarrow.types.is_float32(pa_type) or pyarrow.types.is_float64(pa_type):
+        # NaN is the only value that isn't equal to itself, and is treated as a missing value
+        return [
+            ProtoValue(double_val=v) if v is not None and v == v else ProtoValue()
+            for v in values
+        ]
+    if pyarrow.types.is_string(pa_type) or pyarrow.types.is_large_string(pa_type):
+        return [ProtoValue() if v is None else ProtoValue(string_val=v) for v in values]
+    if pyarrow.types.is_binary(pa_type) or pyarrow.types.is_large_binary(pa_type):
+        return [ProtoValue() if v is None else ProtoValue(bytes_val=v) for v in values]
+    if pyarrow.types.is_boolean(pa_type):
+        return [ProtoValue() if v is None else ProtoValue(bool_val=v) for v in values]
+    if pyarrow.types.is_list(pa_type) or pyarrow.types.is_large_list(pa_type):
+        item_type = pa_type.value_type
+        if pyarrow.types.is_integer(item_type):
+            return [
+                ProtoValue()
+                if v is None
+                else ProtoValue(int64_list_val=Int64List(val=v))
+                for v in values
+            ]
+        if pyarrow.types.is_float32(item_type) or pyarrow.types.is_float64(item_type):
+            return [
+                ProtoValue()
+                if v is None
+                else ProtoValue(double_list_val=DoubleList(val=v))
+                for v in values
+            ]
+        if pyarrow.types.is_string(item_type) or pyarrow.types.is_large_string(
+            item_type
+        ):
+            return [
+                ProtoValue()
+                if v is None
+                else ProtoValue(string_list_val=StringList(val=v))
+                for v in values
+            ]
+        if pyarrow.types.is_binary(item_type) or pyarrow.types.is_large_binary(
+            item_type
+        ):
+            return [
+                ProtoValue()
+                if v is None
+                else ProtoValue(bytes_list_val=BytesList(val=v))
+                for v in values
+            ]
+        if pyarrow.types.is_boolean(item_type):
+            return [
+                ProtoValue() if v is None else ProtoValue(bool_list_val=BoolList(val=v))
+                for v in values
+            ]
+
+    return [python_value_to_proto_value(v, feature_type) for v in values]
+
+
 def _proto_str_to_value_type(proto_str: str) -> ValueType:
     """
     Returns Feast ValueType given Feast ValueType string.
@@ -69,12 +69,17 @@ GCP_REQUIRED = [
 
 REDIS_REQUIRED = [
     "redis-py-cluster==2.1.2",
+    "aioredis>=2.0.0",
 ]
 
 AWS_REQUIRED = [
     "boto3==1.17.*",
 ]
 
+DUCKDB_REQUIRED = [
+    "duckdb>=0.8.0",
+]
+
 CI_REQUIRED = [
     "cryptography==3.3.2",
     "flake8",
@@ -108,7 +113,9 @@ CI_REQUIRED = [
     "google-cloud-storage>=1.20.*",
     "google-cloud-core==1.4.*",
     "redis-py-cluster==2.1.2",
+    "aioredis>=2.0.0",
     "boto3==1.17.*",
+    "duckdb>=0.8.0",
 ]
 
 
@@ -206,6 +213,7 @@ setup(
         "gcp": GCP_REQUIRED,
         "aws": AWS_REQUIRED,
         "redis": REDIS_REQUIRED,
+        "duckdb": DUCKDB_REQUIRED,
     },
     include_package_data=True,
     license="Apache",
@@ -0,0 +1,211 @@
+import threading
+from datetime import datetime, timedelta, timezone
+
+import pandas as pd
+import pytest
+
+from feast import Entity, FeatureStore, FileSource, RepoConfig, ValueType
+from feast.feature import Feature
+from feast.feature_view import FeatureView
+from feast.infra.online_stores.sqlite import SqliteOnlineStoreConfig
+from feast.repo_config import MaterializationConfig, OnlineCacheConfig
+
+START = datetime(2021, 8, 1, tzinfo=timezone.utc)
+END = START + timedelta(hours=24)
+
+
+def _create_store(tmp_path, online_cache=None, **materialization):
+    # Every hour, driver 1 reports the hour as its amount of trips and driver 2 the hour plus 100
+    hours = list(range(24))
+    pd.DataFrame(
+        {
+            "driver_id": [1] * 24 + [2] * 24,
+            "trips": hours + [100 + hour for hour in hours],
+            "event_timestamp": [
+                pd.Timestamp(START + timedelta(hours=hour)) for hour in hours
+            ]
+            * 2,
+        }
+    ).to_parquet(tmp_path / "driver_stats.parquet")
+
+    store = FeatureStore(
+        config=RepoConfig(
+            registry=str(tmp_path / "registry.db"),
+            project="test",
+            provider="local",
+            online_store=SqliteOnlineStoreConfig(path=str(tmp_path / "online.db")),
+            online_cache=online_cache,
+            materialization=MaterializationConfig(**materialization),
+        )
+    )
+    store.apply(
+        [
+            Entity(name="driver_id", value_type=ValueType.INT64),
+            FeatureView(
+                name="driver_stats",
+                entities=["driver_id"],
+                features=[Feature(name="trips", dtype=ValueType.INT64)],
+                batch_source=FileSource(
+                    path=str(tmp_path / "driver_stats.parquet"),
+                    event_timestamp_column="event_timestamp",
+                ),
+                ttl=timedelta(days=2),
+            ),
+        ]
+    )
+    return store
+
+
+def _online_trips(store):
+    return store.get_online_features(
+        features=["driver_stats:trips"],
+        entity_rows=[{"driver_id": 1}, {"driver_id": 2}],
+    ).to_dict()["trips"]
+
+
+def _record_shards(monkeypatch, store, fail_shard_start=None):
+    """
+    Records the time range of every shard materialized by the provider of the store, and fails the shard that
+    starts at fail_shard_start.
+    """
+    provider = store._get_provider()
+    materialize_single_feature_view = provider.materialize_single_feature_view
+    shards = []
+    lock = threading.Lock()
+
+    def record_shard(**kwargs):
+        with lock:
+            shards.append((kwargs["start_date"], kwargs["end_date"]))
+        if kwargs["start_date"] == fail_shard_start:
+            raise ValueError("shard failure")
+        materialize_single_feature_view(**kwargs)
+
+    monkeypatch.setattr(provider, "materialize_single_feature_view", record_shard)
+    return shards
+
+
+def test_materialize_splits_interval_into_shards(tmp_path, monkeypatch):
+    store = _create_store(tmp_path, shard_duration_seconds=5 * 3600, concurrency=3)
+    shards = _record_shards(monkeypatch, store)
+
+    store.materialize(START, END)
+
+    assert sorted(shards) == [
+        (START + timedelta(hours=hour), START + timedelta(hours=min(hour + 5, 24)))
+        for hour in range(0, 24, 5)
+    ]
+    assert _online_trips(store) == [23, 123]
+    feature_view = store.get_feature_view("driver_stats")
+    assert feature_view.materialization_intervals == [(START, END)]
+
+
+@pytest.mark.parametrize("concurrency", [1, 3])
+def test_materialize_does_not_record_interval_of_failed_shards(
+    tmp_path, monkeypatch, concurrency
+):
+    store = _create_store(
+        tmp_path, shard_duration_seconds=6 * 3600, concurrency=concurrency
+    )
+    _record_shards(monkeypatch, store, fail_shard_start=START + timedelta(hours=6))
+
+    with pytest.raises(ValueError, match="shard failure"):
+        store.materialize(START, END)
+
+    feature_view = store.get_feature_view("driver_stats")
+    assert feature_view.materialization_intervals == []
+
+
+def test_materialize_concurrent_shards_read_registry_while_intervals_are_recorded(
+    tmp_path,
+):
+    store = _create_store(tmp_path, shard_duration_seconds=3600, concurrency=4)
+    store.apply(
+        [
+            FeatureView(
+                name=f"driver_stats_{i}",
+                entities=["driver_id"],
+                features=[Feature(name="trips", dtype=ValueType.INT64)],
+                batch_source=FileSource(
+                    path=str(tmp_path / "driver_stats.parquet"),
+                    event_timestamp_column="event_timestamp",
+                ),
+                ttl=timedelta(days=2),
+            )
+            for i in range(3)
+        ]
+    )
+
+    # Providers read the entities of every shard from the registry, while other shards complete and record
+    # their feature views as materialized
+    store.materialize(START, END)
+
+    for feature_view in store.list_feature_views():
+        assert feature_view.materialization_intervals == [(START, END)]
+    assert _online_trips(store) == [23, 123]
+
+
+def test_materialize_resumes_from_checkpoints(tmp_path, monkeypatch):
+    store = _create_store(tmp_path, shard_duration_seconds=6 * 3600, checkpoint=True)
+    _record_shards(monkeypatch, store, fail_shard_start=START + timedelta(hours=12))
+
+    with pytest.raises(ValueError, match="shard failure"):
+        store.materialize(START, END)
+
+    feature_view = store.get_feature_view("driver_stats")
+    assert feature_view.materialization_intervals == []
+    assert feature_view.materialization_checkpoints == [
+        (START, START + timedelta(hours=6)),
+        (START + timedelta(hours=6), START + timedelta(hours=12)),
+    ]
+
+    # The rerun only materializes the shards that weren't completed
+    monkeypatch.undo()
+    shards = _record_shards(monkeypatch, store)
+    store.materialize(START, END)
+
+    assert shards == [
+        (START + timedelta(hours=12), START + timedelta(hours=18)),
+        (START + timedelta(hours=18), END),
+    ]
+    feature_view = store.get_feature_view("driver_stats")
+    assert feature_view.materialization_intervals == [(START, END)]
+    assert feature_view.materialization_checkpoints == []
+    assert _online_trips(store) == [23, 123]
+
+
+def test_materialize_without_checkpoints_reruns_every_shard(tmp_path, monkeypatch):
+    store = _create_store(tmp_path, shard_duration_seconds=6 * 3600)
+    _record_shards(monkeypatch, store, fail_shard_start=START + timedelta(hours=12))
+
+    with pytest.raises(ValueError, match="shard failure"):
+        store.materialize(START, END)
+    assert store.get_feature_view("driver_stats").materialization_checkpoints == []
+
+    monkeypatch.undo()
+    shards = _record_shards(monkeypatch, store)
+    store.materialize(START, END)
+
+    assert len(shards) == 4
+
+
+@pytest.mark.timeout(120)
+def test_materialize_in_worker_processes(tmp_path):
+    store = _create_store(tmp_path, worker_processes=2, batch_size=5)
+
+    store.materialize(START, END)
+
+    assert _online_trips(store) == [23, 123]
+
+
+@pytest.mark.timeout(120)
+def test_materialize_in_worker_processes_invalidates_online_cache(tmp_path):
+    store = _create_store(
+        tmp_path, online_cache=OnlineCacheConfig(ttl_seconds=3600), worker_processes=2
+    )
+
+    store.materialize(START, START + timedelta(hours=12))
+    assert _online_trips(store) == [11, 111]
+
+    # The workers write to the online store directly, the cached rows are dropped afterwards
+    store.materialize(START + timedelta(hours=12), END)
+    assert _online_trips(store) == [23, 123]
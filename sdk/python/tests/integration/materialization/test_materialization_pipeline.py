@@ -0,0 +1,180 @@
+import threading
+from datetime import datetime, timedelta
+
+import pyarrow
+import pytest
+
+from feast import FileSource
+from feast.feature import Feature
+from feast.feature_view import FeatureView
+from feast.infra.offline_stores.offline_store import RetrievalJob
+from feast.infra.online_stores.sqlite import SqliteOnlineStoreConfig
+from feast.infra.provider import _write_retrieval_job_to_online_store
+from feast.repo_config import MaterializationConfig, RepoConfig
+from feast.value_type import ValueType
+
+START = datetime(2021, 8, 1)
+
+
+class FakeRetrievalJob(RetrievalJob):
+    """ Serves a table in memory, optionally failing after the first fail_after batches """
+
+    def __init__(self, table, fail_after=None):
+        self.table = table
+        self.fail_after = fail_after
+        self.batch_sizes = []
+
+    def to_df(self):
+        return self.table.to_pandas()
+
+    def to_arrow(self):
+        return self.table
+
+    def to_arrow_batches(self, batch_size=None):
+        self.batch_sizes.append(batch_size)
+        for i, batch in enumerate(self.table.to_batches(max_chunksize=batch_size)):
+            if self.fail_after is not None and i >= self.fail_after:
+                raise ValueError("offline store failure")
+            yield batch
+
+
+class FakeProvider:
+    """ Records the rows written to the online store """
+
+    def __init__(self, fail_writes=False):
+        self.writes = []
+        self.fail_writes = fail_writes
+
+    def online_write_batch(self, config, table, data, progress):
+        if self.fail_writes:
+            raise ValueError("online store failure")
+        self.writes.append(data)
+        progress(len(data))
+
+
+class FakeProgressBar:
+    def __init__(self, total):
+        self.total = total
+        self.n = 0
+
+    def update(self, n):
+        self.n += n
+
+    def refresh(self):
+        pass
+
+    def __enter__(self):
+        return self
+
+    def __exit__(self, *exc_info):
+        pass
+
+
+def _feature_view(field_mapping=None):
+    return FeatureView(
+        name="driver_stats",
+        entities=["driver_id"],
+        features=[
+            Feature(name="conv_rate", dtype=ValueType.FLOAT),
+            Feature(name="trips", dtype=ValueType.INT64),
+        ],
+        batch_source=FileSource(
+            path="unused.parquet",
+            event_timestamp_column="event_timestamp",
+            field_mapping=field_mapping,
+        ),
+        ttl=timedelta(days=1),
+    )
+
+
+def _table(num_rows, trips_column="trips"):
+    return pyarrow.Table.from_pydict(
+        {
+            "driver_id": list(range(num_rows)),
+            "conv_rate": [i / 10 for i in range(num_rows)],
+            trips_column: [i * 2 for i in range(num_rows)],
+            "event_timestamp": [START + timedelta(minutes=i) for i in range(num_rows)],
+        }
+    )
+
+
+def _config(**kwargs):
+    return RepoConfig(
+        project="test",
+        provider="local",
+        online_store=SqliteOnlineStoreConfig(path="unused.db"),
+        materialization=MaterializationConfig(**kwargs),
+    )
+
+
+def _materialize(config, job, provider=None, feature_view=None):
+    provider = provider or FakeProvider()
+    progress_bars = []
+
+    def tqdm_builder(length):
+        progress_bars.append(FakeProgressBar(length))
+        return progress_bars[-1]
+
+    _write_retrieval_job_to_online_store(
+        provider,
+        config,
+        feature_view or _feature_view(),
+        job,
+        ["driver_id"],
+        tqdm_builder,
+    )
+    (progress_bar,) = progress_bars
+    return provider, progress_bar
+
+
+def test_streaming_writes_rows_batch_by_batch():
+    job = FakeRetrievalJob(_table(10))
+
+    provider, progress_bar = _materialize(_config(batch_size=3, queue_size=1), job)
+
+    assert job.batch_sizes == [3]
+    assert [len(rows) for rows in provider.writes] == [3, 3, 3, 1]
+    assert (progress_bar.total, progress_bar.n) == (10, 10)
+
+    # Streaming writes the same rows as loading the whole window at once
+    expected, _ = _materialize(_config(), FakeRetrievalJob(_table(10)))
+    assert [len(rows) for rows in expected.writes] == [10]
+    assert [row for rows in provider.writes for row in rows] == expected.writes[0]
+
+
+def test_streaming_applies_field_mapping():
+    job = FakeRetrievalJob(_table(4, trips_column="trips_raw"))
+
+    provider, _ = _materialize(
+        _config(batch_size=3),
+        job,
+        feature_view=_feature_view(field_mapping={"trips_raw": "trips"}),
+    )
+
+    rows = [row for rows in provider.writes for row in rows]
+    assert [values["trips"].int64_val for _, values, _, _ in rows] == [0, 2, 4, 6]
+
+
+@pytest.mark.timeout(30)
+def test_streaming_raises_offline_store_failures():
+    job = FakeRetrievalJob(_table(10), fail_after=2)
+    provider = FakeProvider()
+
+    with pytest.raises(ValueError, match="offline store failure"):
+        _materialize(_config(batch_size=3, queue_size=1), job, provider)
+
+    assert [len(rows) for rows in provider.writes] == [3, 3]
+
+
+@pytest.mark.timeout(30)
+def test_streaming_stops_converting_when_writes_fail():
+    threads_before = threading.active_count()
+    job = FakeRetrievalJob(_table(100))
+
+    # The converter would block on the full queue forever if it wasn't stopped
+    with pytest.raises(ValueError, match="online store failure"):
+        _materialize(
+            _config(batch_size=1, queue_size=1), job, FakeProvider(fail_writes=True)
+        )
+
+    assert threading.active_count() == threads_before
@@ -0,0 +1,378 @@
+from datetime import datetime, timedelta
+
+import pandas as pd
+import pyarrow
+import pyarrow.parquet
+import pytest
+from pandas.testing import assert_frame_equal
+from pytz import utc
+
+from feast import Entity, FeatureStore, FileSource, RepoConfig, ValueType
+from feast.feature import Feature
+from feast.feature_view import FeatureView
+from feast.infra.offline_stores.file import (
+    FileOfflineStore,
+    FileOfflineStoreConfig,
+    FileRetrievalJob,
+)
+from feast.infra.online_stores.sqlite import SqliteOnlineStoreConfig
+
+START = datetime(2021, 8, 1, tzinfo=utc)
+
+
+class SpyDataset:
+    """ Records the arguments of every read of a pyarrow dataset """
+
+    def __init__(self, dataset):
+        self.dataset = dataset
+        self.reads = []
+
+    def to_table(self, **kwargs):
+        self.reads.append(kwargs)
+        return self.dataset.to_table(**kwargs)
+
+    def __getattr__(self, name):
+        return getattr(self.dataset, name)
+
+
+def _spy_datasets(monkeypatch):
+    datasets = []
+    to_dataset = FileSource.to_dataset
+
+    def spy_to_dataset(source):
+        datasets.append(SpyDataset(to_dataset(source)))
+        return datasets[-1]
+
+    monkeypatch.setattr(FileSource, "to_dataset", spy_to_dataset)
+    return datasets
+
+
+def _config(**kwargs):
+    return RepoConfig(
+        project="test",
+        provider="local",
+        online_store=SqliteOnlineStoreConfig(path="unused.db"),
+        offline_store=FileOfflineStoreConfig(**kwargs),
+    )
+
+
+def _driver_stats_df(days=3):
+    # Every hour, every driver reports the amount of hours since START as its amount of trips
+    hours = range(24 * days)
+    return pd.DataFrame(
+        {
+            "driver_id": [driver_id for _ in hours for driver_id in (1, 2, 3)],
+            "trips": [hour for hour in hours for _ in (1, 2, 3)],
+            "unused": [0.5 for _ in hours for _ in (1, 2, 3)],
+            "event_timestamp": [
+                START + timedelta(hours=hour) for hour in hours for _ in (1, 2, 3)
+            ],
+        }
+    )
+
+
+def _write_parquet(df, path, row_group_size=24):
+    pyarrow.parquet.write_table(
+        pyarrow.Table.from_pandas(df, preserve_index=False),
+        str(path),
+        row_group_size=row_group_size,
+    )
+
+
+def _pull_latest(source, start_date, end_date, **config):
+    return FileOfflineStore.pull_latest_from_table_or_query(
+        config=_config(**config),
+        data_source=source,
+        join_key_columns=["driver_id"],
+        feature_name_columns=["trips"],
+        event_timestamp_column="event_timestamp",
+        created_timestamp_column=None,
+        start_date=start_date,
+        end_date=end_date,
+    ).to_df()
+
+
+@pytest.mark.parametrize("tz", [None, "UTC", "US/Pacific"])
+def test_pull_latest_returns_latest_rows_in_time_range(tmp_path, tz):
+    df = _driver_stats_df()
+    event_timestamps = pd.to_datetime(df["event_timestamp"], utc=True)
+    df["event_timestamp"] = (
+        event_timestamps.dt.tz_convert(tz)
+        if tz
+        else event_timestamps.dt.tz_localize(None)
+    )
+    _write_parquet(df, tmp_path / "driver_stats.parquet")
+    source = FileSource(
+        path=str(tmp_path / "driver_stats.parquet"),
+        event_timestamp_column="event_timestamp",
+    )
+
+    result = _pull_latest(
+        source, START + timedelta(hours=24), START + timedelta(hours=30)
+    )
+
+    assert list(result.columns) == ["driver_id", "trips", "event_timestamp"]
+    assert sorted(result["driver_id"]) == [1, 2, 3]
+    assert list(result["trips"]) == [29, 29, 29]
+    assert list(result["event_timestamp"]) == [START + timedelta(hours=29)] * 3
+
+
+def test_pull_latest_reads_only_needed_columns_and_time_range(tmp_path, monkeypatch):
+    _write_parquet(_driver_stats_df(), tmp_path / "driver_stats.parquet")
+    source = FileSource(
+        path=str(tmp_path / "driver_stats.parquet"),
+        event_timestamp_column="event_timestamp",
+    )
+    datasets = _spy_datasets(monkeypatch)
+
+    _pull_latest(source, START + timedelta(hours=24), START + timedelta(hours=48))
+
+    (dataset,) = datasets
+    (read,) = dataset.reads
+    assert read["columns"] == ["driver_id", "trips", "event_timestamp"]
+    # Only the rows of the second day are read
+    assert dataset.dataset.to_table(filter=read["filter"]).num_rows == 24 * 3
+
+
+def test_pull_latest_filters_timestamps_not_stored_as_timestamps(tmp_path):
+    df = _driver_stats_df()
+    df["event_timestamp"] = df["event_timestamp"].astype(str)
+    _write_parquet(df, tmp_path / "driver_stats.parquet")
+    source = FileSource(
+        path=str(tmp_path / "driver_stats.parquet"),
+        event_timestamp_column="event_timestamp",
+    )
+
+    result = _pull_latest(
+        source, START + timedelta(hours=24), START + timedelta(hours=30)
+    )
+
+    assert list(result["trips"]) == [29, 29, 29]
+
+
+def _write_daily_partitions(df, base_dir):
+    """ Writes the rows of every day to a date=YYYY-MM-DD directory, without the partition key column """
+    for day, day_df in df.groupby(df["event_timestamp"].dt.strftime("%Y-%m-%d")):
+        partition_dir = base_dir / f"date={day}"
+        partition_dir.mkdir(parents=True)
+        _write_parquet(day_df, partition_dir / "part-0.parquet")
+
+
+def test_pull_latest_prunes_date_partitions(tmp_path, monkeypatch):
+    _write_daily_partitions(_driver_stats_df(), tmp_path / "driver_stats")
+    source = FileSource(
+        path=str(tmp_path / "driver_stats"),
+        event_timestamp_column="event_timestamp",
+        date_partition_column="date",
+    )
+    datasets = _spy_datasets(monkeypatch)
+
+    result = _pull_latest(
+        source, START + timedelta(hours=24), START + timedelta(hours=30)
+    )
+
+    assert list(result.columns) == ["driver_id", "trips", "event_timestamp"]
+    assert list(result["trips"]) == [29, 29, 29]
+    (dataset,) = datasets
+    (read,) = dataset.reads
+    # Only the partition of the second day is opened
+    fragments = list(dataset.dataset.get_fragments(filter=read["filter"]))
+    assert [fragment.path.split("/")[-2] for fragment in fragments] == [
+        "date=2021-08-02"
+    ]
+
+
+def test_pull_latest_reads_files_matching_glob(tmp_path):
+    _write_daily_partitions(_driver_stats_df(), tmp_path / "driver_stats")
+    source = FileSource(
+        path=str(tmp_path / "driver_stats" / "*" / "*.parquet"),
+        event_timestamp_column="event_timestamp",
+        date_partition_column="date",
+    )
+
+    # Partition keys are parsed from the paths of the matching files
+    assert "date" in source.to_dataset().schema.names
+    result = _pull_latest(
+        source, START + timedelta(hours=24), START + timedelta(hours=30)
+    )
+    assert list(result["trips"]) == [29, 29, 29]
+
+
+def test_glob_without_matching_files_fails(tmp_path):
+    source = FileSource(
+        path=str(tmp_path / "driver_stats" / "*.parquet"),
+        event_timestamp_column="event_timestamp",
+    )
+
+    with pytest.raises(FileNotFoundError):
+        source.to_dataset()
+
+
+def _historical_features(tmp_path, entity_df, **config):
+    store = FeatureStore(
+        config=RepoConfig(
+            registry=str(tmp_path / "registry.db"),
+            project="test",
+            provider="local",
+            online_store=SqliteOnlineStoreConfig(path=str(tmp_path / "online.db")),
+            offline_store=FileOfflineStoreConfig(**config),
+        )
+    )
+    store.apply(
+        [
+            Entity(name="driver_id", value_type=ValueType.INT64),
+            FeatureView(
+                name="driver_stats",
+                entities=["driver_id"],
+                features=[Feature(name="trips", dtype=ValueType.INT64)],
+                batch_source=FileSource(
+                    path=str(tmp_path / "driver_stats.parquet"),
+                    event_timestamp_column="event_timestamp",
+                    created_timestamp_column="created",
+                ),
+                ttl=timedelta(hours=2),
+            ),
+        ]
+    )
+    df = store.get_historical_features(
+        entity_df=entity_df, features=["driver_stats:trips"]
+    ).to_df()
+    return df.sort_values(["event_timestamp", "driver_id"], ignore_index=True)
+
+
+def test_duckdb_engine_matches_pandas_engine(tmp_path, monkeypatch):
+    duckdb = pytest.importorskip("duckdb")
+
+    df = _driver_stats_df()
+    df["created"] = df["event_timestamp"]
+    # A later correction of the rows of driver 2 at hour 30, which wins over the original rows
+    correction = df[(df["driver_id"] == 2) & (df["trips"] == 30)].copy()
+    correction["trips"] = 1000
+    correction["created"] += timedelta(minutes=5)
+    _write_parquet(pd.concat([df, correction]), tmp_path / "driver_stats.parquet")
+
+    # Entity timestamps are naive UTC, while the feature timestamps are time zone aware
+    entity_df = pd.DataFrame(
+        {
+            "driver_id": [1, 2, 2, 3, 4, 1, 3],
+            "event_timestamp": [
+                START + timedelta(hours=hours)
+                for hours in [30, 30, 30.5, 31.75, 30, -1, 100]
+            ],
+        }
+    )
+    entity_df["event_timestamp"] = entity_df["event_timestamp"].dt.tz_localize(None)
+
+    # The host of the duckdb engine is in a time zone other than UTC
+    connect = duckdb.connect
+
+    def connect_in_pacific_time(*args, **kwargs):
+        connection = connect(*args, **kwargs)
+        connection.execute("SET TimeZone='America/Los_Angeles'")
+        return connection
+
+    monkeypatch.setattr(duckdb, "connect", connect_in_pacific_time)
+
+    expected = _historical_features(tmp_path, entity_df, engine="pandas")
+    result = _historical_features(tmp_path, entity_df, engine="duckdb")
+
+    assert list(expected["trips"].fillna(-1)) == [-1, 30, 1000, -1, 1000, 31, -1]
+    assert_frame_equal(
+        result[list(expected.columns)], expected, check_dtype=False,
+    )
+
+
+def test_historical_retrieval_only_reads_rows_joinable_to_entity_df(
+    tmp_path, monkeypatch
+):
+    df = _driver_stats_df()
+    df["created"] = df["event_timestamp"]
+    _write_parquet(df, tmp_path / "driver_stats.parquet")
+    entity_df = pd.DataFrame(
+        {
+            "driver_id": [1, 2],
+            "event_timestamp": [
+                START + timedelta(hours=30),
+                START + timedelta(hours=31),
+            ],
+        }
+    )
+    datasets = _spy_datasets(monkeypatch)
+
+    result = _historical_features(tmp_path, entity_df, engine="pandas")
+
+    assert list(result["trips"]) == [30, 31]
+    # The source is read once by the retrieval, after any reads of its schema when the feature view is applied
+    dataset = datasets[-1]
+    (read,) = dataset.reads
+    assert read["columns"] == ["driver_id", "event_timestamp", "created", "trips"]
+    # Only the rows of drivers 1 and 2, from the ttl before the first entity row up to the last one, are read
+    table = dataset.dataset.to_table(filter=read["filter"])
+    assert sorted(set(table.column("driver_id").to_pylist())) == [1, 2]
+    assert table.num_rows == 4 * 2
+
+
+def _counting_job(result):
+    evaluations = []
+
+    def evaluate():
+        evaluations.append(1)
+        return result
+
+    return FileRetrievalJob(evaluation_function=evaluate), evaluations
+
+
+@pytest.mark.parametrize("engine_result", ["pandas", "arrow"])
+def test_retrieval_job_evaluates_once(engine_result):
+    df = _driver_stats_df(days=1)
+    job, evaluations = _counting_job(
+        df if engine_result == "pandas" else pyarrow.Table.from_pandas(df)
+    )
+
+    job.to_df()
+    job.to_arrow()
+    list(job.to_arrow_batches(10))
+    job.to_df()
+
+    assert len(evaluations) == 1
+
+
+def test_retrieval_job_converts_dataframe_one_batch_at_a_time():
+    df = pd.DataFrame(
+        {
+            "driver_id": list(range(10)),
+            # The first batch only holds missing values
+            "rating": [None] * 4 + ["good"] * 6,
+        }
+    )
+    job, _ = _counting_job(df)
+
+    batches = list(job.to_arrow_batches(4))
+
+    assert [batch.num_rows for batch in batches] == [4, 4, 2]
+    assert all(batch.schema.equals(batches[0].schema) for batch in batches)
+    assert pyarrow.Table.from_batches(batches).to_pandas().equals(df)
+
+
+def test_retrieval_job_streams_parquet_row_groups(tmp_path):
+    df = _driver_stats_df(days=1)
+    job, _ = _counting_job(df)
+
+    job.to_parquet(str(tmp_path / "result.parquet"), batch_size=10)
+
+    parquet_file = pyarrow.parquet.ParquetFile(str(tmp_path / "result.parquet"))
+    # Every batch is written as its own row group, without building the whole table first
+    assert parquet_file.metadata.num_rows == len(df)
+    assert parquet_file.metadata.num_row_groups == 8
+    assert job._table is None
+    assert parquet_file.read().to_pandas().equals(df)
+
+
+def test_retrieval_job_writes_empty_parquet(tmp_path):
+    job, _ = _counting_job(pd.DataFrame({"driver_id": pd.Series([], dtype="int64")}))
+
+    job.to_parquet(str(tmp_path / "result.parquet"))
+
+    table = pyarrow.parquet.read_table(str(tmp_path / "result.parquet"))
+    assert table.num_rows == 0
+    assert table.column_names == ["driver_id"]
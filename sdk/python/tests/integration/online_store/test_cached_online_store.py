@@ -0,0 +1,243 @@
+from datetime import datetime, timedelta, timezone
+
+import pytest
+
+from feast import FileSource
+from feast.feature import Feature
+from feast.feature_view import FeatureView
+from feast.infra.key_encoding_utils import serialize_entity_key
+from feast.infra.online_stores import cached
+from feast.infra.online_stores.cached import CachedOnlineStore
+from feast.infra.online_stores.online_store import OnlineStore
+from feast.infra.online_stores.sqlite import SqliteOnlineStoreConfig
+from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
+from feast.protos.feast.types.Value_pb2 import Value as ValueProto
+from feast.repo_config import OnlineCacheConfig, RepoConfig
+from feast.value_type import ValueType
+
+
+class FakeOnlineStore(OnlineStore):
+    """ Keeps rows in memory and records the amount of entity keys of every read """
+
+    def __init__(self):
+        self.rows = {}
+        self.reads = []
+
+    def online_write_batch(self, config, table, data, progress):
+        for entity_key, values, event_ts, _ in data:
+            self.rows[serialize_entity_key(entity_key)] = (event_ts, values)
+
+    def online_read(self, config, table, entity_keys, requested_features=None):
+        self.reads.append(len(entity_keys))
+        result = []
+        for entity_key in entity_keys:
+            event_ts, values = self.rows.get(
+                serialize_entity_key(entity_key), (None, None)
+            )
+            if values is not None and requested_features is not None:
+                values = {name: values[name] for name in requested_features}
+            result.append((event_ts, values))
+        return result
+
+    def update(
+        self,
+        config,
+        tables_to_delete,
+        tables_to_keep,
+        entities_to_delete,
+        entities_to_keep,
+        partial,
+    ):
+        pass
+
+    def teardown(self, config, tables, entities):
+        pass
+
+
+class FakeClock:
+    def __init__(self):
+        self.now = 1000.0
+
+    def __call__(self):
+        return self.now
+
+
+def _feature_view(ttl=timedelta(hours=2)):
+    return FeatureView(
+        name="driver_stats",
+        entities=["driver_id"],
+        features=[
+            Feature(name="conv_rate", dtype=ValueType.FLOAT),
+            Feature(name="avg_daily_trips", dtype=ValueType.INT32),
+        ],
+        batch_source=FileSource(
+            path="unused.parquet", event_timestamp_column="event_timestamp"
+        ),
+        ttl=ttl,
+    )
+
+
+def _config():
+    return RepoConfig(
+        project="test",
+        provider="local",
+        online_store=SqliteOnlineStoreConfig(path="unused.db"),
+    )
+
+
+def _entity_key(driver_id):
+    return EntityKeyProto(
+        join_keys=["driver_id"], entity_values=[ValueProto(int64_val=driver_id)]
+    )
+
+
+def _write(store, driver_ids, trips, event_ts, feature_view=None):
+    store.online_write_batch(
+        _config(),
+        feature_view or _feature_view(),
+        [
+            (
+                _entity_key(driver_id),
+                {
+                    "conv_rate": ValueProto(float_val=0.5),
+                    "avg_daily_trips": ValueProto(int32_val=trips),
+                },
+                event_ts,
+                None,
+            )
+            for driver_id in driver_ids
+        ],
+        None,
+    )
+
+
+def _read(store, driver_ids, feature_view=None, requested_features=None):
+    return store.online_read(
+        _config(),
+        feature_view or _feature_view(),
+        [_entity_key(driver_id) for driver_id in driver_ids],
+        requested_features,
+    )
+
+
+@pytest.fixture
+def clock(monkeypatch):
+    clock = FakeClock()
+    monkeypatch.setattr(cached.time, "monotonic", clock)
+    return clock
+
+
+def _cached_store(**kwargs):
+    online_store = FakeOnlineStore()
+    return CachedOnlineStore(online_store, OnlineCacheConfig(**kwargs)), online_store
+
+
+def test_online_read_serves_rows_from_cache(clock):
+    store, online_store = _cached_store()
+    _write(store, range(3), 1, datetime.now(timezone.utc))
+
+    _read(store, [0, 1])
+    result = _read(store, [0, 1, 2, 3])
+
+    # Only the rows that were not cached yet are read from the wrapped store, missing rows are never cached
+    assert online_store.reads == [2, 2]
+    assert [values["avg_daily_trips"].int32_val for _, values in result[:3]] == [
+        1,
+        1,
+        1,
+    ]
+    assert result[3] == (None, None)
+    assert store.stats() == {
+        "hits": 2,
+        "misses": 4,
+        "hit_rate": 2 / 6,
+        "entries": 3,
+    }
+
+
+def test_online_write_batch_invalidates_cached_rows(clock):
+    store, online_store = _cached_store()
+    _write(store, [1, 2], 1, datetime.now(timezone.utc))
+    _read(store, [1, 2])
+
+    _write(store, [1], 2, datetime.now(timezone.utc))
+    result = _read(store, [1, 2])
+
+    assert online_store.reads == [2, 1]
+    assert [values["avg_daily_trips"].int32_val for _, values in result] == [2, 1]
+
+
+def test_cached_rows_expire_after_ttl(clock):
+    store, online_store = _cached_store(ttl_seconds=60)
+    _write(store, [1], 1, datetime.now(timezone.utc))
+
+    _read(store, [1])
+    clock.now += 59
+    _read(store, [1])
+    assert online_store.reads == [1]
+
+    clock.now += 1
+    _read(store, [1])
+    assert online_store.reads == [1, 1]
+
+
+def test_rows_are_not_cached_beyond_feature_view_ttl(clock):
+    store, online_store = _cached_store(ttl_seconds=600)
+    feature_view = _feature_view(ttl=timedelta(minutes=10))
+    # DynamoDB returns event timestamps as strings, which have to expire as well
+    event_ts = datetime.now(timezone.utc) - timedelta(minutes=9)
+    _write(store, [1], 1, str(event_ts), feature_view)
+    _write(store, [2], 1, event_ts.replace(tzinfo=None), feature_view)
+
+    _read(store, [1, 2], feature_view)
+    clock.now += 59
+    _read(store, [1, 2], feature_view)
+    assert online_store.reads == [2]
+
+    clock.now += 1
+    _read(store, [1, 2], feature_view)
+    assert online_store.reads == [2, 2]
+
+
+def test_rows_already_outside_feature_view_ttl_are_not_cached(clock):
+    store, online_store = _cached_store()
+    feature_view = _feature_view(ttl=timedelta(minutes=10))
+    _write(
+        store,
+        [1],
+        1,
+        str(datetime.now(timezone.utc) - timedelta(minutes=11)),
+        feature_view,
+    )
+
+    _read(store, [1], feature_view)
+    _read(store, [1], feature_view)
+
+    assert online_store.reads == [1, 1]
+    assert store.stats()["entries"] == 0
+
+
+def test_least_recently_used_rows_are_evicted(clock):
+    store, online_store = _cached_store(max_entries=2)
+    _write(store, [1, 2, 3], 1, datetime.now(timezone.utc))
+
+    _read(store, [1, 2])
+    _read(store, [1])
+    _read(store, [3])
+    _read(store, [1, 2])
+
+    # Reading 3 evicted 2, which was used less recently than 1
+    assert online_store.reads == [2, 1, 1]
+
+
+def test_cached_rows_missing_requested_features_are_read_again(clock):
+    store, online_store = _cached_store()
+    _write(store, [1], 1, datetime.now(timezone.utc))
+
+    _read(store, [1], requested_features=["conv_rate"])
+    _read(store, [1], requested_features=["conv_rate"])
+    assert online_store.reads == [1]
+
+    result = _read(store, [1], requested_features=["avg_daily_trips"])
+    assert online_store.reads == [1, 1]
+    assert result[0][1]["avg_daily_trips"].int32_val == 1
@@ -0,0 +1,131 @@
+import threading
+from datetime import datetime, timedelta
+
+from google.cloud import datastore
+
+from feast import FileSource
+from feast.feature import Feature
+from feast.feature_view import FeatureView
+from feast.infra.online_stores.datastore import (
+    DatastoreOnlineStore,
+    DatastoreOnlineStoreConfig,
+)
+from feast.infra.online_stores.helpers import compute_entity_id
+from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
+from feast.protos.feast.types.Value_pb2 import Value as ValueProto
+from feast.repo_config import RepoConfig
+from feast.value_type import ValueType
+
+
+class FakeDatastoreClient:
+    """
+    Looks entities up in memory. The first deferred_calls lookups defer half of their keys, like Datastore
+    does when a lookup takes too long.
+    """
+
+    def __init__(self, deferred_calls=0):
+        self.entities = {}
+        self.lookups = []
+        self.deferred_calls = deferred_calls
+        self._lock = threading.Lock()
+
+    def key(self, *path):
+        return datastore.Key(*path, project="test-project")
+
+    def get_multi(self, keys, deferred=None):
+        with self._lock:
+            self.lookups.append(len(keys))
+            if self.deferred_calls > 0:
+                self.deferred_calls -= 1
+                half = len(keys) // 2
+                deferred.extend(keys[half:])
+                keys = keys[:half]
+        return [self.entities[key.name] for key in keys if key.name in self.entities]
+
+
+def _feature_view():
+    return FeatureView(
+        name="driver_stats",
+        entities=["driver_id"],
+        features=[Feature(name="avg_daily_trips", dtype=ValueType.INT32)],
+        batch_source=FileSource(
+            path="unused.parquet", event_timestamp_column="event_timestamp"
+        ),
+        ttl=timedelta(hours=2),
+    )
+
+
+def _config(**kwargs):
+    return RepoConfig(
+        project="test",
+        provider="gcp",
+        online_store=DatastoreOnlineStoreConfig(**kwargs),
+        offline_store="file",
+    )
+
+
+def _entity_key(driver_id):
+    return EntityKeyProto(
+        join_keys=["driver_id"], entity_values=[ValueProto(int64_val=driver_id)]
+    )
+
+
+def _store_with_entities(client, driver_ids, event_ts):
+    for driver_id in driver_ids:
+        key = client.key(
+            "Project",
+            "test",
+            "Table",
+            "driver_stats",
+            "Row",
+            compute_entity_id(_entity_key(driver_id)),
+        )
+        value = ValueProto(int32_val=driver_id)
+        entity = datastore.Entity(key=key)
+        entity.update(
+            {
+                "values": {"avg_daily_trips": value.SerializeToString()},
+                "event_ts": event_ts,
+            }
+        )
+        client.entities[key.name] = entity
+
+    store = DatastoreOnlineStore()
+    store._client = client
+    return store
+
+
+def test_online_read_looks_keys_up_in_batches():
+    client = FakeDatastoreClient()
+    event_ts = datetime(2021, 8, 1, 12)
+    store = _store_with_entities(client, range(10), event_ts)
+
+    # Missing and duplicated keys are answered in request order
+    requested_ids = [-1] + list(reversed(range(10))) + [3]
+    result = store.online_read(
+        _config(read_batch_size=4),
+        _feature_view(),
+        [_entity_key(i) for i in requested_ids],
+    )
+
+    # Every unique key is looked up once, at most read_batch_size keys per lookup
+    assert sorted(client.lookups) == [3, 4, 4]
+    assert result[0] == (None, None)
+    assert [
+        values["avg_daily_trips"].int32_val for _, values in result[1:]
+    ] == requested_ids[1:]
+    assert all(ts == event_ts for ts, _ in result[1:])
+
+
+def test_online_read_retries_deferred_keys():
+    client = FakeDatastoreClient(deferred_calls=2)
+    store = _store_with_entities(client, range(8), datetime(2021, 8, 1, 12))
+
+    result = store.online_read(
+        _config(), _feature_view(), [_entity_key(i) for i in range(8)]
+    )
+
+    assert client.lookups == [8, 4, 2]
+    assert [values["avg_daily_trips"].int32_val for _, values in result] == list(
+        range(8)
+    )
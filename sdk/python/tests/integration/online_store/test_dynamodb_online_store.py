@@ -0,0 +1,301 @@
+import threading
+from datetime import datetime, timedelta
+
+import pytest
+
+from feast import FileSource
+from feast.errors import DynamoDBUnprocessedItemsError
+from feast.feature import Feature
+from feast.feature_view import FeatureView
+from feast.infra.offline_stores.file import FileOfflineStoreConfig
+from feast.infra.online_stores import dynamodb
+from feast.infra.online_stores.dynamodb import (
+    BATCH_GET_ITEM_MAX_KEYS,
+    DynamoDBOnlineStore,
+    DynamoDBOnlineStoreConfig,
+)
+from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
+from feast.protos.feast.types.Value_pb2 import Value as ValueProto
+from feast.repo_config import RepoConfig
+from feast.value_type import ValueType
+
+TABLE_NAME = "test.driver_stats"
+
+
+class FakeDynamoDBClient:
+    """
+    Keeps the items of a single table in memory. The first unprocessed_calls requests only process half of
+    their keys or items, and return the others as unprocessed.
+    """
+
+    def __init__(self, unprocessed_calls=0):
+        self.items = {}
+        self.batch_get_requests = []
+        self.batch_write_requests = []
+        self.unprocessed_calls = unprocessed_calls
+        self._lock = threading.Lock()
+
+    def _split_processed(self, requests):
+        with self._lock:
+            if self.unprocessed_calls > 0:
+                self.unprocessed_calls -= 1
+                half = max(len(requests) // 2, 1)
+                return requests[:half], requests[half:]
+        return requests, []
+
+    def batch_get_item(self, RequestItems):
+        keys_and_attributes = RequestItems[TABLE_NAME]
+        with self._lock:
+            self.batch_get_requests.append(keys_and_attributes)
+        processed, unprocessed = self._split_processed(keys_and_attributes["Keys"])
+
+        response = {
+            "Responses": {
+                TABLE_NAME: [
+                    self.items[key["entity_id"]["S"]]
+                    for key in processed
+                    if key["entity_id"]["S"] in self.items
+                ]
+            }
+        }
+        if unprocessed:
+            response["UnprocessedKeys"] = {
+                TABLE_NAME: {**keys_and_attributes, "Keys": unprocessed}
+            }
+        return response
+
+    def batch_write_item(self, RequestItems):
+        requests = RequestItems[TABLE_NAME]
+        with self._lock:
+            self.batch_write_requests.append(requests)
+        processed, unprocessed = self._split_processed(requests)
+
+        with self._lock:
+            for request in processed:
+                item = request["PutRequest"]["Item"]
+                self.items[item["entity_id"]["S"]] = item
+        if unprocessed:
+            return {"UnprocessedItems": {TABLE_NAME: unprocessed}}
+        return {}
+
+
+def _feature_view():
+    return FeatureView(
+        name="driver_stats",
+        entities=["driver_id"],
+        features=[
+            Feature(name="conv_rate", dtype=ValueType.FLOAT),
+            Feature(name="avg_daily_trips", dtype=ValueType.INT32),
+        ],
+        batch_source=FileSource(
+            path="unused.parquet", event_timestamp_column="event_timestamp"
+        ),
+        ttl=timedelta(hours=2),
+    )
+
+
+def _config(**kwargs):
+    return RepoConfig(
+        project="test",
+        provider="aws",
+        online_store=DynamoDBOnlineStoreConfig(region="us-west-2", **kwargs),
+        offline_store=FileOfflineStoreConfig(),
+    )
+
+
+def _entity_key(driver_id):
+    return EntityKeyProto(
+        join_keys=["driver_id"], entity_values=[ValueProto(int64_val=driver_id)]
+    )
+
+
+def _row(driver_id, trips, event_ts):
+    return (
+        _entity_key(driver_id),
+        {
+            "conv_rate": ValueProto(float_val=0.5),
+            "avg_daily_trips": ValueProto(int32_val=trips),
+        },
+        event_ts,
+        None,
+    )
+
+
+def _store(client):
+    store = DynamoDBOnlineStore()
+    store._dynamodb_client = client
+    store._dynamodb_resource = object()
+    return store
+
+
+@pytest.fixture(autouse=True)
+def no_backoff(monkeypatch):
+    monkeypatch.setattr(dynamodb.time, "sleep", lambda seconds: None)
+
+
+def test_online_read_splits_keys_into_batch_get_requests():
+    client = FakeDynamoDBClient()
+    store = _store(client)
+    config = _config()
+    event_ts = datetime(2021, 8, 1, 12)
+    store.online_write_batch(
+        config, _feature_view(), [_row(i, i, event_ts) for i in range(250)], None
+    )
+
+    # Missing and duplicated keys are answered in request order
+    requested_ids = [-1] + list(reversed(range(250))) + [3]
+    result = store.online_read(
+        config, _feature_view(), [_entity_key(i) for i in requested_ids]
+    )
+    store.close()
+
+    assert [len(request["Keys"]) for request in client.batch_get_requests] == [
+        BATCH_GET_ITEM_MAX_KEYS,
+        BATCH_GET_ITEM_MAX_KEYS,
+        51,
+    ]
+    assert result[0] == (None, None)
+    assert [
+        values["avg_daily_trips"].int32_val for _, values in result[1:]
+    ] == requested_ids[1:]
+
+
+def test_online_read_projects_requested_features():
+    client = FakeDynamoDBClient()
+    store = _store(client)
+
+    store.online_read(_config(), _feature_view(), [_entity_key(1)], ["conv_rate"])
+
+    (request,) = client.batch_get_requests
+    assert request["ProjectionExpression"] == "entity_id, event_ts, #values.#f0"
+    assert request["ExpressionAttributeNames"] == {
+        "#values": "values",
+        "#f0": "conv_rate",
+    }
+
+
+def test_online_read_retries_unprocessed_keys():
+    client = FakeDynamoDBClient()
+    store = _store(client)
+    config = _config()
+    event_ts = datetime(2021, 8, 1, 12)
+    store.online_write_batch(
+        config, _feature_view(), [_row(i, i, event_ts) for i in range(8)], None
+    )
+    client.unprocessed_calls = 2
+
+    result = store.online_read(
+        config, _feature_view(), [_entity_key(i) for i in range(8)]
+    )
+
+    assert [len(request["Keys"]) for request in client.batch_get_requests] == [
+        8,
+        4,
+        2,
+    ]
+    assert [values["avg_daily_trips"].int32_val for _, values in result] == list(
+        range(8)
+    )
+
+
+def test_online_read_fails_when_keys_stay_unprocessed():
+    client = FakeDynamoDBClient(unprocessed_calls=100)
+    store = _store(client)
+
+    with pytest.raises(DynamoDBUnprocessedItemsError):
+        store.online_read(
+            _config(max_retries=2),
+            _feature_view(),
+            [_entity_key(i) for i in range(8)],
+        )
+    assert len(client.batch_get_requests) == 3
+
+
+def test_close_stops_read_threads():
+    store = _store(FakeDynamoDBClient())
+    store.online_read(
+        _config(), _feature_view(), [_entity_key(i) for i in range(250)]
+    )
+    assert store._read_pool is not None
+
+    store.close()
+
+    assert store._read_pool is None
+
+
+def test_online_write_batch_keeps_latest_row_per_entity():
+    client = FakeDynamoDBClient()
+    store = _store(client)
+    event_ts = datetime(2021, 8, 1, 12)
+    progress = []
+
+    # Duplicates come in out of order, the row with the latest event timestamp wins
+    rows = [
+        _row(1, 2, event_ts + timedelta(hours=1)),
+        _row(2, 1, event_ts),
+        _row(1, 1, event_ts),
+        _row(1, 3, event_ts + timedelta(hours=1)),
+    ]
+    store.online_write_batch(_config(), _feature_view(), rows, progress.append)
+
+    for request in client.batch_write_requests:
+        entity_ids = [item["PutRequest"]["Item"]["entity_id"]["S"] for item in request]
+        assert len(entity_ids) == len(set(entity_ids))
+    result = store.online_read(_config(), _feature_view(), [_entity_key(1)])
+    assert result[0][1]["avg_daily_trips"].int32_val == 3
+    # Progress accounts for every input row, including the duplicates that were dropped
+    assert sum(progress) == len(rows)
+
+
+def test_online_write_batch_splits_rows_into_batch_write_requests():
+    client = FakeDynamoDBClient()
+    store = _store(client)
+    event_ts = datetime(2021, 8, 1, 12)
+    progress = []
+
+    store.online_write_batch(
+        _config(write_batch_size=10, write_concurrency=3),
+        _feature_view(),
+        [_row(i, i, event_ts) for i in range(45)],
+        progress.append,
+    )
+
+    assert sorted(len(request) for request in client.batch_write_requests) == [
+        5,
+        10,
+        10,
+        10,
+        10,
+    ]
+    assert len(client.items) == 45
+    assert sum(progress) == 45
+
+
+def test_online_write_batch_retries_unprocessed_items():
+    client = FakeDynamoDBClient(unprocessed_calls=2)
+    store = _store(client)
+    event_ts = datetime(2021, 8, 1, 12)
+
+    store.online_write_batch(
+        _config(write_concurrency=1),
+        _feature_view(),
+        [_row(i, i, event_ts) for i in range(8)],
+        None,
+    )
+
+    assert [len(request) for request in client.batch_write_requests] == [8, 4, 2]
+    assert len(client.items) == 8
+
+
+def test_online_write_batch_fails_when_items_stay_unprocessed():
+    client = FakeDynamoDBClient(unprocessed_calls=100)
+    store = _store(client)
+
+    with pytest.raises(DynamoDBUnprocessedItemsError):
+        store.online_write_batch(
+            _config(max_retries=2),
+            _feature_view(),
+            [_row(i, i, datetime(2021, 8, 1, 12)) for i in range(8)],
+            None,
+        )
+    assert len(client.batch_write_requests) == 3
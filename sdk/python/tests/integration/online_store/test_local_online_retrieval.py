@@ -0,0 +1,238 @@
+import asyncio
+import threading
+import time
+from datetime import datetime, timedelta
+
+import pytest
+
+from feast import Entity, FeatureStore, FileSource, RepoConfig, ValueType
+from feast.feature import Feature
+from feast.feature_view import FeatureView
+from feast.infra.online_stores.sqlite import SqliteOnlineStoreConfig
+from feast.repo_config import OnlineCacheConfig
+from feast.protos.feast.serving.ServingService_pb2 import GetOnlineFeaturesResponse
+from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
+from feast.protos.feast.types.Value_pb2 import Value as ValueProto
+
+FEATURES = ["driver_stats:trips", "driver_ratings:rating"]
+
+
+def _feature_view(name, *features):
+    return FeatureView(
+        name=name,
+        entities=["driver_id"],
+        features=[
+            Feature(name=feature, dtype=ValueType.INT64) for feature in features
+        ],
+        batch_source=FileSource(
+            path="unused.parquet", event_timestamp_column="event_timestamp"
+        ),
+        ttl=timedelta(days=1),
+    )
+
+
+def _write(store, feature_view_name, feature, values):
+    event_ts = datetime.utcnow()
+    store._get_provider().online_write_batch(
+        config=store.config,
+        table=store.get_feature_view(feature_view_name),
+        data=[
+            (
+                EntityKeyProto(
+                    join_keys=["driver_id"],
+                    entity_values=[ValueProto(int64_val=driver_id)],
+                ),
+                {feature: ValueProto(int64_val=value)},
+                event_ts,
+                None,
+            )
+            for driver_id, value in values.items()
+        ],
+        progress=None,
+    )
+
+
+def _create_store(tmp_path, **config):
+    store = FeatureStore(
+        config=RepoConfig(
+            registry=str(tmp_path / "registry.db"),
+            project="test",
+            provider="local",
+            online_store=SqliteOnlineStoreConfig(path=str(tmp_path / "online.db")),
+            **config,
+        )
+    )
+    store.apply(
+        [
+            Entity(name="driver_id", value_type=ValueType.INT64),
+            _feature_view("driver_stats", "trips"),
+            _feature_view("driver_ratings", "rating"),
+        ]
+    )
+    _write(store, "driver_stats", "trips", {1: 10, 2: 20})
+    _write(store, "driver_ratings", "rating", {1: 4, 2: 5})
+    return store
+
+
+@pytest.fixture
+def local_store(tmp_path):
+    return _create_store(tmp_path)
+
+
+def _patch_online_read(monkeypatch, store, before_read):
+    """ Calls before_read with the name of every feature view right before it is read from the online store """
+    provider = store._get_provider()
+    online_read = provider.online_read
+
+    def patched_online_read(config, table, entity_keys, requested_features=None):
+        before_read(table.name)
+        return online_read(config, table, entity_keys, requested_features)
+
+    monkeypatch.setattr(provider, "online_read", patched_online_read)
+    monkeypatch.setattr(store, "_get_provider", lambda: provider)
+
+
+def test_get_online_features_reads_feature_views_concurrently(
+    local_store, monkeypatch
+):
+    # The barrier only lets the reads through if both feature views are read at once
+    barrier = threading.Barrier(2, timeout=10)
+    _patch_online_read(monkeypatch, local_store, lambda _: barrier.wait())
+
+    result = local_store.get_online_features(
+        features=FEATURES, entity_rows=[{"driver_id": 2}, {"driver_id": 1}]
+    ).to_dict()
+
+    assert result == {"driver_id": [2, 1], "trips": [20, 10], "rating": [5, 4]}
+
+
+def test_get_online_features_returns_feature_views_read_before_timeout(
+    local_store, monkeypatch
+):
+    release = threading.Event()
+
+    def before_read(feature_view_name):
+        if feature_view_name == "driver_ratings":
+            release.wait(10)
+
+    _patch_online_read(monkeypatch, local_store, before_read)
+
+    start = time.monotonic()
+    response = local_store.get_online_features(
+        features=FEATURES, entity_rows=[{"driver_id": 1}], timeout=0.5
+    )
+    elapsed = time.monotonic() - start
+    release.set()
+
+    assert elapsed < 5
+    (row,) = response.field_values
+    assert row.fields["trips"].int64_val == 10
+    assert row.statuses["trips"] == GetOnlineFeaturesResponse.FieldStatus.PRESENT
+    assert row.statuses["rating"] == GetOnlineFeaturesResponse.FieldStatus.NOT_FOUND
+
+
+def test_get_online_features_async_matches_get_online_features(local_store):
+    entity_rows = [{"driver_id": 2}, {"driver_id": 1}, {"driver_id": 3}]
+
+    expected = local_store.get_online_features(
+        features=FEATURES, entity_rows=entity_rows
+    )
+    response = asyncio.run(
+        local_store.get_online_features_async(
+            features=FEATURES, entity_rows=entity_rows
+        )
+    )
+
+    assert response.proto == expected.proto
+
+
+def test_get_online_features_async_returns_feature_views_read_before_timeout(
+    local_store, monkeypatch
+):
+    provider = local_store._get_provider()
+    online_read_async = provider.online_read_async
+
+    async def patched_online_read_async(
+        config, table, entity_keys, requested_features=None
+    ):
+        if table.name == "driver_ratings":
+            await asyncio.sleep(10)
+        return await online_read_async(config, table, entity_keys, requested_features)
+
+    monkeypatch.setattr(provider, "online_read_async", patched_online_read_async)
+    monkeypatch.setattr(local_store, "_get_provider", lambda: provider)
+
+    start = time.monotonic()
+    response = asyncio.run(
+        local_store.get_online_features_async(
+            features=FEATURES, entity_rows=[{"driver_id": 1}], timeout=0.5
+        )
+    )
+
+    assert time.monotonic() - start < 5
+    (row,) = response.field_values
+    assert row.fields["trips"].int64_val == 10
+    assert row.statuses["rating"] == GetOnlineFeaturesResponse.FieldStatus.NOT_FOUND
+
+
+def test_online_retrieval_plans_are_compiled_once_per_registry_version(
+    local_store, monkeypatch
+):
+    compiled_plans = []
+    compile_plan = local_store._compile_online_retrieval_plan
+
+    def counting_compile_plan(*args):
+        compiled_plans.append(args)
+        return compile_plan(*args)
+
+    monkeypatch.setattr(
+        local_store, "_compile_online_retrieval_plan", counting_compile_plan
+    )
+    entity_rows = [{"driver_id": 1}]
+
+    local_store.get_online_features(features=FEATURES, entity_rows=entity_rows)
+    local_store.get_online_features(features=FEATURES, entity_rows=entity_rows)
+    assert len(compiled_plans) == 1
+
+    # Every list of features gets its own plan
+    local_store.get_online_features(
+        features=["driver_stats:trips"], entity_rows=entity_rows
+    )
+    assert len(compiled_plans) == 2
+
+    # Changes applied through the feature store drop the plans
+    local_store.apply([_feature_view("driver_ratings", "rating", "score")])
+    response = local_store.get_online_features(
+        features=["driver_ratings:score"] + FEATURES, entity_rows=entity_rows
+    )
+    assert "score" in response.to_dict()
+    local_store.get_online_features(features=FEATURES, entity_rows=entity_rows)
+    assert len(compiled_plans) == 4
+
+    # So do changes committed by other clients, once the registry is refreshed
+    other_store = FeatureStore(config=local_store.config)
+    other_store.apply([_feature_view("driver_stats", "trips", "distance")])
+    local_store.refresh_registry()
+    local_store.get_online_features(features=FEATURES, entity_rows=entity_rows)
+    assert len(compiled_plans) == 5
+    local_store.get_online_features(features=FEATURES, entity_rows=entity_rows)
+    assert len(compiled_plans) == 5
+
+
+def test_online_cache_is_kept_across_calls(tmp_path):
+    store = _create_store(tmp_path, online_cache=OnlineCacheConfig())
+    entity_rows = [{"driver_id": 1}, {"driver_id": 2}]
+
+    expected = store.get_online_features(features=FEATURES, entity_rows=entity_rows)
+    response = store.get_online_features(features=FEATURES, entity_rows=entity_rows)
+
+    assert response.proto == expected.proto
+    stats = store._get_provider().online_store.stats()
+    assert (stats["hits"], stats["misses"]) == (4, 4)
+
+    # Rows written through the provider are dropped from the cache
+    _write(store, "driver_stats", "trips", {1: 11})
+    result = store.get_online_features(
+        features=FEATURES, entity_rows=entity_rows
+    ).to_dict()
+    assert result["trips"] == [11, 20]
@@ -0,0 +1,339 @@
+import asyncio
+import threading
+import zlib
+from datetime import datetime, timedelta
+
+import pytest
+
+from feast import FileSource
+from feast.feature import Feature
+from feast.feature_view import FeatureView
+from feast.infra.online_stores.redis import (
+    RedisOnlineStore,
+    RedisOnlineStoreConfig,
+    RedisType,
+)
+from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
+from feast.protos.feast.types.Value_pb2 import Value as ValueProto
+from feast.repo_config import RepoConfig
+from feast.value_type import ValueType
+
+
+class FakePipeline:
+    """ Records the commands of a pipeline and runs them against the hashes of a FakeRedis on execute """
+
+    def __init__(self, client, transaction):
+        self._client = client
+        self._transaction = transaction
+        self._commands = []
+
+    def __enter__(self):
+        return self
+
+    def __exit__(self, *args):
+        pass
+
+    def hset(self, key, mapping):
+        self._commands.append(("hset", key, mapping))
+
+    def hmget(self, key, fields):
+        self._commands.append(("hmget", key, fields))
+
+    def execute(self):
+        with self._client.lock:
+            self._client.pipelines.append((self._transaction, self._commands))
+            results = []
+            for command, key, arg in self._commands:
+                if command == "hset":
+                    self._client.hashes.setdefault(key, {}).update(arg)
+                    results.append(len(arg))
+                else:
+                    hash_values = self._client.hashes.get(key, {})
+                    results.append([hash_values.get(field) for field in arg])
+        self._commands = []
+        return results
+
+
+class FakeRedis:
+    def __init__(self):
+        self.hashes = {}
+        self.pipelines = []
+        self.lock = threading.Lock()
+
+    def pipeline(self, transaction=True):
+        return FakePipeline(self, transaction)
+
+
+class FakeAsyncPipeline:
+    def __init__(self, client):
+        self._client = client
+        self._commands = []
+
+    async def __aenter__(self):
+        return self
+
+    async def __aexit__(self, *args):
+        pass
+
+    def hmget(self, key, fields):
+        self._commands.append((key, fields))
+
+    async def execute(self):
+        # Like aioredis connections, the client can only be used from the event loop it was created on
+        assert asyncio.get_event_loop() is self._client.loop
+        self._client.in_flight += 1
+        self._client.max_in_flight = max(
+            self._client.max_in_flight, self._client.in_flight
+        )
+        await asyncio.sleep(0.01)
+        self._client.in_flight -= 1
+        return [
+            [self._client.hashes.get(key, {}).get(field) for field in fields]
+            for key, fields in self._commands
+        ]
+
+
+class FakeAsyncRedis:
+    def __init__(self, hashes):
+        self.hashes = hashes
+        self.loop = asyncio.get_event_loop()
+        self.in_flight = 0
+        self.max_in_flight = 0
+
+    def pipeline(self, transaction=True):
+        return FakeAsyncPipeline(self)
+
+
+class FakeClusterNodes:
+    def keyslot(self, key):
+        return zlib.crc32(key) % 16384
+
+
+class FakeClusterConnectionPool:
+    nodes = FakeClusterNodes()
+
+    def get_master_node_by_slot(self, slot):
+        return {"name": f"node-{slot % 3}"}
+
+
+class FakeRedisCluster(FakeRedis):
+    connection_pool = FakeClusterConnectionPool()
+
+    @classmethod
+    def node_of(cls, key):
+        pool = cls.connection_pool
+        return pool.get_master_node_by_slot(pool.nodes.keyslot(key))["name"]
+
+
+def _feature_view():
+    return FeatureView(
+        name="driver_stats",
+        entities=["driver_id"],
+        features=[
+            Feature(name="conv_rate", dtype=ValueType.FLOAT),
+            Feature(name="avg_daily_trips", dtype=ValueType.INT32),
+        ],
+        batch_source=FileSource(
+            path="unused.parquet", event_timestamp_column="event_timestamp"
+        ),
+        ttl=timedelta(hours=2),
+    )
+
+
+def _config(**kwargs):
+    return RepoConfig(
+        project="test", provider="local", online_store=RedisOnlineStoreConfig(**kwargs)
+    )
+
+
+def _entity_key(driver_id):
+    return EntityKeyProto(
+        join_keys=["driver_id"], entity_values=[ValueProto(int64_val=driver_id)]
+    )
+
+
+def _rows(driver_ids, event_ts):
+    return [
+        (
+            _entity_key(driver_id),
+            {
+                "conv_rate": ValueProto(float_val=driver_id / 10),
+                "avg_daily_trips": ValueProto(int32_val=driver_id),
+            },
+            event_ts,
+            None,
+        )
+        for driver_id in driver_ids
+    ]
+
+
+def _store(client):
+    store = RedisOnlineStore()
+    store._client = client
+    return store
+
+
+def _write(store, config, driver_ids, event_ts):
+    store.online_write_batch(config, _feature_view(), _rows(driver_ids, event_ts), None)
+
+
+def test_online_read_pipelines_keys_in_batches():
+    client = FakeRedis()
+    store = _store(client)
+    event_ts = datetime(2021, 8, 1, 12)
+    _write(store, _config(), range(5), event_ts)
+    client.pipelines.clear()
+
+    config = _config(read_batch_size=2)
+    result = store.online_read(
+        config, _feature_view(), [_entity_key(i) for i in [4, 0, 3, 1, 2]]
+    )
+
+    # One HMGET per key, at most read_batch_size keys per pipeline, without transactions
+    assert [len(commands) for _, commands in client.pipelines] == [2, 2, 1]
+    assert all(
+        command == "hmget"
+        for _, commands in client.pipelines
+        for command, _, _ in commands
+    )
+    assert not any(transaction for transaction, _ in client.pipelines)
+
+    # Rows come back in the order of the requested keys
+    assert [values["avg_daily_trips"].int32_val for _, values in result] == [
+        4,
+        0,
+        3,
+        1,
+        2,
+    ]
+    assert all(
+        ts == datetime.fromtimestamp(int(event_ts.timestamp())) for ts, _ in result
+    )
+
+
+def test_online_read_returns_requested_features_only():
+    client = FakeRedis()
+    store = _store(client)
+    _write(store, _config(), [1], datetime(2021, 8, 1, 12))
+
+    result = store.online_read(
+        _config(), _feature_view(), [_entity_key(1)], ["conv_rate"]
+    )
+
+    _, values = result[0]
+    assert list(values.keys()) == ["conv_rate"]
+    assert abs(values["conv_rate"].float_val - 0.1) < 1e-6
+
+
+def test_online_read_groups_cluster_keys_by_node():
+    client = FakeRedisCluster()
+    store = _store(client)
+    driver_ids = list(range(50))
+    config = _config(redis_type=RedisType.redis_cluster, read_batch_size=4)
+    _write(store, config, driver_ids, datetime(2021, 8, 1, 12))
+    client.pipelines.clear()
+
+    requested_ids = list(reversed(driver_ids))
+    result = store.online_read(
+        config, _feature_view(), [_entity_key(i) for i in requested_ids]
+    )
+
+    # Every pipeline only holds keys owned by a single node
+    for _, commands in client.pipelines:
+        assert len(commands) <= 4
+        assert len({client.node_of(key) for _, key, _ in commands}) == 1
+    assert len({client.node_of(key) for key in client.hashes}) > 1
+
+    # Replies of the node pipelines are put back in the order of the requested keys
+    assert [
+        values["avg_daily_trips"].int32_val for _, values in result
+    ] == requested_ids
+
+
+def test_online_write_batch_chunks_rows_into_pipelines():
+    client = FakeRedis()
+    store = _store(client)
+    config = _config(write_batch_size=3, write_concurrency=2)
+    progress = []
+
+    store.online_write_batch(
+        config,
+        _feature_view(),
+        _rows(range(10), datetime(2021, 8, 1, 12)),
+        progress.append,
+    )
+
+    assert sorted(len(commands) for _, commands in client.pipelines) == [1, 3, 3, 3]
+    assert not any(transaction for transaction, _ in client.pipelines)
+    assert sorted(progress) == [1, 3, 3, 3]
+    assert len(client.hashes) == 10
+
+
+def test_online_write_batch_wraps_pipelines_in_transactions():
+    client = FakeRedis()
+    store = _store(client)
+
+    store.online_write_batch(
+        _config(write_transaction=True),
+        _feature_view(),
+        _rows(range(3), datetime(2021, 8, 1, 12)),
+        None,
+    )
+
+    assert client.pipelines and all(
+        transaction for transaction, _ in client.pipelines
+    )
+
+
+def test_online_write_batch_groups_cluster_keys_by_node():
+    client = FakeRedisCluster()
+    store = _store(client)
+    # Transactions aren't supported by Redis Cluster pipelines, so the option is ignored
+    config = _config(
+        redis_type=RedisType.redis_cluster, write_batch_size=5, write_transaction=True
+    )
+
+    store.online_write_batch(
+        config, _feature_view(), _rows(range(50), datetime(2021, 8, 1, 12)), None
+    )
+
+    for transaction, commands in client.pipelines:
+        assert not transaction
+        assert len(commands) <= 5
+        assert len({client.node_of(key) for _, key, _ in commands}) == 1
+    assert sum(len(commands) for _, commands in client.pipelines) == 50
+    assert len(client.hashes) == 50
+
+
+def test_online_read_async_uses_a_client_per_event_loop(monkeypatch):
+    aioredis = pytest.importorskip("aioredis")
+    client = FakeRedis()
+    store = _store(client)
+    _write(store, _config(), range(5), datetime(2021, 8, 1, 12))
+    async_clients = []
+
+    def create_async_client(**kwargs):
+        async_client = FakeAsyncRedis(client.hashes)
+        async_clients.append(async_client)
+        return async_client
+
+    monkeypatch.setattr(aioredis, "Redis", create_async_client)
+    config = _config(read_batch_size=2)
+    entity_keys = [_entity_key(i) for i in [4, 0, 3, 1, 2]]
+
+    # Every asyncio.run call has its own event loop
+    for _ in range(2):
+        result = asyncio.run(
+            store.online_read_async(config, _feature_view(), entity_keys)
+        )
+        assert [values["avg_daily_trips"].int32_val for _, values in result] == [
+            4,
+            0,
+            3,
+            1,
+            2,
+        ]
+
+    assert len(async_clients) == 2
+    # The pipelines of the 3 batches are in flight at the same time
+    assert all(async_client.max_in_flight == 3 for async_client in async_clients)
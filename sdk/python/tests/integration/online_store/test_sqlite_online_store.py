@@ -0,0 +1,138 @@
+import sqlite3
+from datetime import datetime, timedelta
+
+import pytest
+import pytz
+
+from feast import FileSource
+from feast.feature import Feature
+from feast.feature_view import FeatureView
+from feast.infra.online_stores.sqlite import (
+    READ_BATCH_SIZE,
+    SqliteOnlineStore,
+    SqliteOnlineStoreConfig,
+)
+from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
+from feast.protos.feast.types.Value_pb2 import Value as ValueProto
+from feast.repo_config import RepoConfig
+from feast.value_type import ValueType
+
+
+def _feature_view():
+    return FeatureView(
+        name="driver_stats",
+        entities=["driver_id"],
+        features=[
+            Feature(name="conv_rate", dtype=ValueType.FLOAT),
+            Feature(name="avg_daily_trips", dtype=ValueType.INT32),
+        ],
+        batch_source=FileSource(
+            path="unused.parquet", event_timestamp_column="event_timestamp"
+        ),
+        ttl=timedelta(hours=2),
+    )
+
+
+def _entity_key(driver_id):
+    return EntityKeyProto(
+        join_keys=["driver_id"], entity_values=[ValueProto(int64_val=driver_id)]
+    )
+
+
+def _rows(driver_ids, trips, event_ts):
+    return [
+        (
+            _entity_key(driver_id),
+            {
+                "conv_rate": ValueProto(float_val=0.5),
+                "avg_daily_trips": ValueProto(int32_val=trips),
+            },
+            event_ts,
+            event_ts,
+        )
+        for driver_id in driver_ids
+    ]
+
+
+@pytest.fixture
+def sqlite_store(tmp_path):
+    config = RepoConfig(
+        project="test",
+        provider="local",
+        online_store=SqliteOnlineStoreConfig(path=str(tmp_path / "online.db")),
+    )
+    store = SqliteOnlineStore()
+    store.update(config, [], [_feature_view()], [], [], False)
+    return store, config
+
+
+@pytest.mark.parametrize(
+    "sqlite_version_info",
+    [sqlite3.sqlite_version_info, (3, 23, 0)],
+    ids=["upsert", "replace"],
+)
+def test_online_write_batch_overwrites_rows(
+    sqlite_store, sqlite_version_info, monkeypatch
+):
+    # Versions older than 3.24 fall back to INSERT OR REPLACE
+    monkeypatch.setattr(sqlite3, "sqlite_version_info", sqlite_version_info)
+    store, config = sqlite_store
+    first_ts = datetime(2021, 8, 1, 12, tzinfo=pytz.utc)
+    second_ts = first_ts + timedelta(hours=1)
+
+    store.online_write_batch(
+        config, _feature_view(), _rows(range(3), 1, first_ts), None
+    )
+    store.online_write_batch(config, _feature_view(), _rows([1, 2], 2, second_ts), None)
+
+    result = store.online_read(
+        config, _feature_view(), [_entity_key(i) for i in range(3)]
+    )
+    assert [values["avg_daily_trips"].int32_val for _, values in result] == [1, 2, 2]
+    # Timestamps are stored as naive UTC
+    assert [ts for ts, _ in result] == [
+        first_ts.replace(tzinfo=None),
+        second_ts.replace(tzinfo=None),
+        second_ts.replace(tzinfo=None),
+    ]
+
+    # Every entity keeps a single row per feature
+    conn = store._get_conn(config)
+    (row_count,) = conn.execute("SELECT COUNT(*) FROM test_driver_stats").fetchone()
+    assert row_count == 3 * 2
+
+
+def test_online_write_batch_reports_progress(sqlite_store):
+    store, config = sqlite_store
+    progress = []
+
+    store.online_write_batch(
+        config,
+        _feature_view(),
+        _rows(range(4), 1, datetime(2021, 8, 1, 12)),
+        progress.append,
+    )
+
+    assert progress == [4]
+
+
+def test_online_read_looks_keys_up_in_batches(sqlite_store):
+    store, config = sqlite_store
+    driver_ids = list(range(READ_BATCH_SIZE * 2 + 10))
+    store.online_write_batch(
+        config, _feature_view(), _rows(driver_ids, 7, datetime(2021, 8, 1, 12)), None
+    )
+
+    # Missing and duplicated keys are answered in request order
+    requested_ids = [-1] + list(reversed(driver_ids)) + [3, -2]
+    result = store.online_read(
+        config, _feature_view(), [_entity_key(i) for i in requested_ids]
+    )
+
+    assert len(result) == len(requested_ids)
+    assert result[0] == (None, None)
+    assert result[-1] == (None, None)
+    assert all(
+        values["avg_daily_trips"].int32_val == 7 and len(values) == 2
+        for _, values in result[1:-1]
+    )
@@ -0,0 +1,140 @@
+from datetime import datetime, timedelta
+
+import pyarrow
+import pytest
+
+from feast import FileSource
+from feast.feature import Feature
+from feast.feature_view import FeatureView
+from feast.infra.provider import _convert_arrow_to_proto
+from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
+from feast.protos.feast.types.Value_pb2 import Int64List
+from feast.protos.feast.types.Value_pb2 import Value as ValueProto
+from feast.type_map import pa_column_to_proto_values, python_value_to_proto_value
+from feast.value_type import ValueType
+
+START = datetime(2021, 8, 1)
+
+
+def _convert_row_by_row(table, feature_view, join_keys):
+    """ Converts every value on its own, like materialization did before converting whole columns """
+    rows = []
+    columns = table.to_pydict()
+    for i in range(table.num_rows):
+        entity_key = EntityKeyProto(
+            join_keys=join_keys,
+            entity_values=[
+                python_value_to_proto_value(columns[join_key][i])
+                for join_key in join_keys
+            ],
+        )
+        features = {
+            feature.name: python_value_to_proto_value(
+                columns[feature.name][i], feature.dtype
+            )
+            for feature in feature_view.features
+        }
+        batch_source = feature_view.batch_source
+        created_timestamp = (
+            columns[batch_source.created_timestamp_column][i]
+            if batch_source.created_timestamp_column
+            else None
+        )
+        rows.append(
+            (
+                entity_key,
+                features,
+                columns[batch_source.event_timestamp_column][i],
+                created_timestamp,
+            )
+        )
+    return rows
+
+
+@pytest.mark.parametrize(
+    "column,feature_type",
+    [
+        (pyarrow.array([1, None, -3], type=pyarrow.int64()), ValueType.INT64),
+        (pyarrow.array([1.5, None, float("nan")]), ValueType.DOUBLE),
+        (pyarrow.array(["a", None, ""]), ValueType.STRING),
+        (pyarrow.array([b"a", None, b""]), ValueType.BYTES),
+        (pyarrow.array([True, None, False]), ValueType.BOOL),
+        (pyarrow.array([[1.5, 2.5], [0.5]]), ValueType.DOUBLE_LIST),
+        (pyarrow.array([["a", "b"], [""]]), ValueType.STRING_LIST),
+        (pyarrow.array([[b"a"], [b"b", b""]]), ValueType.BYTES_LIST),
+        (pyarrow.array([[True, False], [True]]), ValueType.BOOL_LIST),
+    ],
+    ids=[
+        "int",
+        "double",
+        "string",
+        "bytes",
+        "bool",
+        "double_list",
+        "string_list",
+        "bytes_list",
+        "bool_list",
+    ],
+)
+def test_pa_column_to_proto_values_matches_row_by_row_conversion(
+    column, feature_type
+):
+    expected = [
+        python_value_to_proto_value(value, feature_type) for value in column.to_pylist()
+    ]
+
+    assert pa_column_to_proto_values(column, feature_type) == expected
+    assert pa_column_to_proto_values(pyarrow.chunked_array([column])) == expected
+
+
+def test_pa_column_to_proto_values_converts_integer_lists():
+    # The row by row conversion rejects lists of Python ints
+    column = pyarrow.array([[1, 2], None, []], type=pyarrow.list_(pyarrow.int64()))
+
+    assert pa_column_to_proto_values(column) == [
+        ValueProto(int64_list_val=Int64List(val=[1, 2])),
+        ValueProto(),
+        ValueProto(int64_list_val=Int64List(val=[])),
+    ]
+
+
+@pytest.mark.parametrize("created_timestamp_column", ["", "created"])
+def test_convert_arrow_to_proto_matches_row_by_row_conversion(
+    created_timestamp_column,
+):
+    feature_view = FeatureView(
+        name="driver_stats",
+        entities=["driver_id", "city"],
+        features=[
+            Feature(name="conv_rate", dtype=ValueType.DOUBLE),
+            Feature(name="trips", dtype=ValueType.INT64),
+            Feature(name="rating", dtype=ValueType.STRING),
+            Feature(name="active", dtype=ValueType.BOOL),
+            Feature(name="history", dtype=ValueType.DOUBLE_LIST),
+        ],
+        batch_source=FileSource(
+            path="unused.parquet",
+            event_timestamp_column="event_timestamp",
+            created_timestamp_column=created_timestamp_column,
+        ),
+        ttl=timedelta(days=1),
+    )
+    num_rows = 20
+    table = pyarrow.Table.from_pydict(
+        {
+            "driver_id": list(range(num_rows)),
+            "city": [f"city-{i % 3}" for i in range(num_rows)],
+            "conv_rate": [None if i % 7 == 0 else i / 10 for i in range(num_rows)],
+            "trips": [None if i % 5 == 0 else i for i in range(num_rows)],
+            "rating": [str(i % 4) for i in range(num_rows)],
+            "active": [i % 2 == 0 for i in range(num_rows)],
+            "history": [[i / 2] * (i % 3 + 1) for i in range(num_rows)],
+            "event_timestamp": [START + timedelta(minutes=i) for i in range(num_rows)],
+            "created": [START + timedelta(hours=i) for i in range(num_rows)],
+        }
+    )
+    join_keys = ["driver_id", "city"]
+
+    assert _convert_arrow_to_proto(
+        table, feature_view, join_keys
+    ) == _convert_row_by_row(table, feature_view, join_keys)
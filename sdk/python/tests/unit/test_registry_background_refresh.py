@@ -0,0 +1,132 @@
+import time
+from datetime import timedelta
+
+import pytest
+
+from feast.entity import Entity
+from feast.registry import Registry
+from feast.value_type import ValueType
+
+PROJECT = "test"
+
+
+def _registry(tmp_path, cache_ttl, **kwargs):
+    return Registry(
+        registry_path=str(tmp_path / "registry.db"),
+        repo_path=tmp_path,
+        cache_ttl=cache_ttl,
+        **kwargs,
+    )
+
+
+def _entity(name):
+    return Entity(name=name, value_type=ValueType.INT64)
+
+
+def _entity_names(registry):
+    return sorted(
+        entity.name for entity in registry.list_entities(PROJECT, allow_cache=True)
+    )
+
+
+def _wait_for(condition, timeout=10):
+    deadline = time.monotonic() + timeout
+    while not condition():
+        assert time.monotonic() < deadline, "Timed out waiting for the condition"
+        time.sleep(0.01)
+
+
+def _fail_fetches(monkeypatch, registry):
+    def get_registry_proto_if_modified(token):
+        raise IOError("registry store unavailable")
+
+    monkeypatch.setattr(
+        registry._registry_store,
+        "get_registry_proto_if_modified",
+        get_registry_proto_if_modified,
+    )
+
+
+@pytest.fixture(autouse=True)
+def fast_refresh(monkeypatch):
+    monkeypatch.setattr(Registry, "_next_refresh_delay", lambda self, failures: 0.02)
+
+
+@pytest.fixture
+def writer(tmp_path):
+    writer = _registry(tmp_path, timedelta(0))
+    writer.apply_entity(_entity("driver_id"), PROJECT)
+    return writer
+
+
+def test_background_refresh_picks_up_changes(tmp_path, writer):
+    # The cache never expires during the test, so reads are always served from it
+    reader = _registry(tmp_path, timedelta(hours=1), background_refresh=True)
+    assert _entity_names(reader) == ["driver_id"]
+
+    writer.apply_entity(_entity("customer_id"), PROJECT)
+
+    _wait_for(lambda: _entity_names(reader) == ["customer_id", "driver_id"])
+    reader.stop_background_refresh()
+
+
+def test_background_refresh_is_disabled_by_default(tmp_path, writer):
+    reader = _registry(tmp_path, timedelta(hours=1))
+    assert _entity_names(reader) == ["driver_id"]
+
+    writer.apply_entity(_entity("customer_id"), PROJECT)
+    time.sleep(0.2)
+
+    assert reader._refresh_thread is None
+    assert _entity_names(reader) == ["driver_id"]
+
+
+def test_failed_refreshes_serve_cached_registry(tmp_path, writer, monkeypatch):
+    reader = _registry(tmp_path, timedelta(milliseconds=50), background_refresh=True)
+    assert _entity_names(reader) == ["driver_id"]
+    _fail_fetches(monkeypatch, reader)
+
+    # The cache expired a while ago, but reads keep being served while refreshes fail
+    time.sleep(0.3)
+    assert _entity_names(reader) == ["driver_id"]
+    reader.stop_background_refresh()
+
+
+def test_reads_fetch_registry_past_max_staleness(tmp_path, writer, monkeypatch):
+    reader = _registry(
+        tmp_path,
+        timedelta(milliseconds=50),
+        background_refresh=True,
+        max_staleness=timedelta(milliseconds=200),
+    )
+    assert _entity_names(reader) == ["driver_id"]
+    _fail_fetches(monkeypatch, reader)
+
+    time.sleep(0.3)
+    with pytest.raises(IOError, match="registry store unavailable"):
+        _entity_names(reader)
+    reader.stop_background_refresh()
+
+
+def test_background_refresh_keeps_uncommitted_changes(tmp_path, writer):
+    reader = _registry(tmp_path, timedelta(hours=1), background_refresh=True)
+    assert _entity_names(reader) == ["driver_id"]
+
+    reader.apply_entity(_entity("customer_id"), PROJECT, commit=False)
+    writer.apply_entity(_entity("merchant_id"), PROJECT)
+    time.sleep(0.2)
+
+    assert _entity_names(reader) == ["customer_id", "driver_id"]
+    reader.stop_background_refresh()
+
+
+def test_stop_background_refresh_stops_thread(tmp_path, writer):
+    reader = _registry(tmp_path, timedelta(hours=1), background_refresh=True)
+    reader.refresh()
+    refresh_thread = reader._refresh_thread
+    assert refresh_thread is not None and refresh_thread.is_alive()
+
+    reader.stop_background_refresh()
+
+    refresh_thread.join(timeout=5)
+    assert not refresh_thread.is_alive()
@@ -0,0 +1,131 @@
+import os
+from datetime import timedelta
+
+import pytest
+
+from feast.entity import Entity
+from feast.protos.feast.core.Registry_pb2 import Registry as RegistryProto
+from feast.registry import GCSRegistryStore, LocalRegistryStore, Registry
+from feast.value_type import ValueType
+
+
+def _registry_proto(version_id):
+    registry_proto = RegistryProto()
+    registry_proto.version_id = version_id
+    return registry_proto
+
+
+def test_local_store_skips_unmodified_registry(tmp_path):
+    store = LocalRegistryStore(tmp_path, "registry.db")
+    token = store.update_registry_proto(_registry_proto(""))
+
+    registry_proto, current_token = store.get_registry_proto_if_modified(token)
+    assert registry_proto is None
+    assert current_token == token
+
+    registry_proto, current_token = store.get_registry_proto_if_modified(None)
+    assert registry_proto is not None
+    assert current_token == token
+
+
+def test_local_store_detects_rewrites_with_same_size_and_mtime(tmp_path):
+    store = LocalRegistryStore(tmp_path, "registry.db")
+    registry_path = tmp_path / "registry.db"
+    registry_path.write_bytes(_registry_proto("1").SerializeToString())
+    _, token = store.get_registry_proto_if_modified(None)
+
+    # Rewrites within the granularity of file system timestamps keep the modification time
+    stat = registry_path.stat()
+    registry_path.write_bytes(_registry_proto("2").SerializeToString())
+    os.utime(registry_path, ns=(stat.st_atime_ns, stat.st_mtime_ns))
+    assert registry_path.stat().st_size == stat.st_size
+
+    registry_proto, current_token = store.get_registry_proto_if_modified(token)
+    assert registry_proto.version_id == "2"
+    assert current_token != token
+
+
+def test_local_store_raises_for_missing_registry(tmp_path):
+    store = LocalRegistryStore(tmp_path, "registry.db")
+
+    with pytest.raises(FileNotFoundError):
+        store.get_registry_proto_if_modified("token")
+
+
+def test_registry_reuses_cached_registry_while_unmodified(tmp_path):
+    writer = Registry(str(tmp_path / "registry.db"), tmp_path, timedelta(0))
+    writer.apply_entity(Entity("driver_id", value_type=ValueType.INT64), "test")
+    reader = Registry(str(tmp_path / "registry.db"), tmp_path, timedelta(0))
+    reader.refresh()
+    cached_registry_proto = reader.cached_registry_proto
+
+    reader.refresh()
+    assert reader.cached_registry_proto is cached_registry_proto
+
+    writer.apply_entity(Entity("customer_id", value_type=ValueType.INT64), "test")
+    reader.refresh()
+    assert reader.cached_registry_proto is not cached_registry_proto
+    assert sorted(entity.name for entity in reader.list_entities("test")) == [
+        "customer_id",
+        "driver_id",
+    ]
+
+
+class FakeBlob:
+    def __init__(self, generation, data):
+        self.generation = generation
+        self.data = data
+
+
+class FakeBucket:
+    def __init__(self, client):
+        self._client = client
+
+    def get_blob(self, blob_name, client=None):
+        return self._client.blobs.get(blob_name)
+
+
+class FakeGCSClient:
+    def __init__(self):
+        self.blobs = {}
+        self.downloads = 0
+
+    def bucket(self, bucket_name):
+        return FakeBucket(self)
+
+    def lookup_bucket(self, bucket_name):
+        return FakeBucket(self)
+
+    def download_blob_to_file(self, blob, file_obj):
+        self.downloads += 1
+        file_obj.write(blob.data)
+
+
+def test_gcs_store_skips_download_of_unmodified_registry(monkeypatch):
+    storage = pytest.importorskip("google.cloud.storage")
+    gcs_client = FakeGCSClient()
+    monkeypatch.setattr(storage, "Client", lambda: gcs_client)
+    store = GCSRegistryStore("gs://bucket/registry.db")
+
+    with pytest.raises(FileNotFoundError):
+        store.get_registry_proto_if_modified(None)
+
+    gcs_client.blobs["registry.db"] = FakeBlob(
+        1, _registry_proto("1").SerializeToString()
+    )
+    registry_proto, token = store.get_registry_proto_if_modified(None)
+    assert registry_proto.version_id == "1"
+    assert token == "1"
+
+    registry_proto, token = store.get_registry_proto_if_modified(token)
+    assert registry_proto is None
+    assert token == "1"
+    assert gcs_client.downloads == 1
+
+    gcs_client.blobs["registry.db"] = FakeBlob(
+        2, _registry_proto("2").SerializeToString()
+    )
+    registry_proto, token = store.get_registry_proto_if_modified(token)
+    assert registry_proto.version_id == "2"
+    assert token == "2"
+    assert gcs_client.downloads == 2
@@ -0,0 +1,117 @@
+from datetime import timedelta
+
+import pytest
+
+from feast.entity import Entity
+from feast.errors import EntityNotFoundException
+from feast.registry import Registry
+from feast.value_type import ValueType
+
+
+def _entity(name, description=""):
+    return Entity(name=name, value_type=ValueType.INT64, description=description)
+
+
+def _entity_names(registry, project):
+    return sorted(
+        entity.name for entity in registry.list_entities(project, allow_cache=True)
+    )
+
+
+@pytest.fixture
+def registry(tmp_path):
+    registry = Registry(str(tmp_path / "registry.db"), tmp_path, timedelta(hours=1))
+    registry.apply_entity(_entity("driver_id"), "project_a")
+    registry.apply_entity(_entity("customer_id"), "project_a")
+    registry.apply_entity(_entity("merchant_id"), "project_b")
+    return registry
+
+
+@pytest.fixture
+def deserialized_entities(monkeypatch):
+    deserialized_entities = []
+    from_proto = Entity.from_proto
+
+    def counting_from_proto(entity_proto):
+        deserialized_entities.append(entity_proto.spec.name)
+        return from_proto(entity_proto)
+
+    monkeypatch.setattr(Entity, "from_proto", staticmethod(counting_from_proto))
+    return deserialized_entities
+
+
+def test_objects_are_indexed_per_project(registry):
+    assert _entity_names(registry, "project_a") == ["customer_id", "driver_id"]
+    assert _entity_names(registry, "project_b") == ["merchant_id"]
+    assert _entity_names(registry, "project_c") == []
+
+    assert registry.get_entity("merchant_id", "project_b").name == "merchant_id"
+    with pytest.raises(EntityNotFoundException):
+        registry.get_entity("merchant_id", "project_a")
+
+
+def test_objects_are_deserialized_once_per_registry_version(
+    registry, deserialized_entities
+):
+    for _ in range(3):
+        _entity_names(registry, "project_a")
+        registry.get_entity("driver_id", "project_a", allow_cache=True)
+    assert sorted(deserialized_entities) == ["customer_id", "driver_id"]
+
+    # Only the objects of the projects that are read are deserialized
+    deserialized_entities.clear()
+    _entity_names(registry, "project_b")
+    assert deserialized_entities == ["merchant_id"]
+
+    # A new version of the registry is indexed again
+    deserialized_entities.clear()
+    registry.apply_entity(_entity("vehicle_id"), "project_a")
+    assert _entity_names(registry, "project_a") == [
+        "customer_id",
+        "driver_id",
+        "vehicle_id",
+    ]
+    assert sorted(deserialized_entities) == ["customer_id", "driver_id", "vehicle_id"]
+
+
+def test_uncommitted_changes_are_listed(registry):
+    assert _entity_names(registry, "project_a") == ["customer_id", "driver_id"]
+
+    registry.apply_entity(_entity("vehicle_id"), "project_a", commit=False)
+    assert _entity_names(registry, "project_a") == [
+        "customer_id",
+        "driver_id",
+        "vehicle_id",
+    ]
+
+    registry.commit()
+    assert _entity_names(registry, "project_a") == [
+        "customer_id",
+        "driver_id",
+        "vehicle_id",
+    ]
+
+
+def test_callers_get_copies_of_indexed_objects(registry):
+    entity = registry.get_entity("driver_id", "project_a", allow_cache=True)
+    entity.description = "modified"
+    for listed_entity in registry.list_entities("project_a", allow_cache=True):
+        listed_entity.description = "modified"
+
+    entity = registry.get_entity("driver_id", "project_a", allow_cache=True)
+    assert entity.description == ""
+    assert all(
+        listed_entity.description == ""
+        for listed_entity in registry.list_entities("project_a", allow_cache=True)
+    )
+
+
+def test_internals_read_shared_objects(registry):
+    project_objects = registry.get_project_objects("project_a", allow_cache=True)
+    driver_id = project_objects.get_entity("driver_id")
+
+    same_project_objects = registry.get_project_objects("project_a", allow_cache=True)
+    assert same_project_objects is project_objects
+    assert driver_id is project_objects.entities["driver_id"]
+    with pytest.raises(EntityNotFoundException):
+        project_objects.get_entity("merchant_id")
@@ -0,0 +1,174 @@
+from datetime import timedelta
+
+import pytest
+
+from feast.entity import Entity
+from feast.protos.feast.core.Registry_pb2 import Registry as RegistryProto
+from feast.protos.feast.core.Registry_pb2 import (
+    RegistryManifest as RegistryManifestProto,
+)
+from feast.registry import Registry
+from feast.sharded_registry_store import (
+    MANIFEST_KEY,
+    SHARD_GC_GRACE_SECONDS,
+    ShardedRegistryStore,
+)
+from feast.value_type import ValueType
+
+PROJECT = "test"
+
+
+def _registry_proto(*entity_names):
+    registry_proto = RegistryProto()
+    for entity_name in entity_names:
+        entity_proto = Entity(name=entity_name, value_type=ValueType.INT64).to_proto()
+        entity_proto.spec.project = PROJECT
+        registry_proto.entities.append(entity_proto)
+    return registry_proto
+
+
+def _entity_names(registry_proto):
+    return sorted(entity_proto.spec.name for entity_proto in registry_proto.entities)
+
+
+def _shard_paths(tmp_path):
+    return sorted((tmp_path / "registry" / "entities").iterdir())
+
+
+def _read_manifest(tmp_path):
+    manifest = RegistryManifestProto()
+    manifest.ParseFromString((tmp_path / "registry" / MANIFEST_KEY).read_bytes())
+    return manifest
+
+
+def _age_retired_shards(tmp_path, seconds):
+    manifest = _read_manifest(tmp_path)
+    for retired_shard in manifest.retired_shards:
+        retired_shard.retired_at.FromDatetime(
+            retired_shard.retired_at.ToDatetime() - timedelta(seconds=seconds)
+        )
+    (tmp_path / "registry" / MANIFEST_KEY).write_bytes(manifest.SerializeToString())
+
+
+def _spy(monkeypatch, store, method):
+    keys = []
+    objects_method = getattr(store._objects, method)
+
+    def record_key(key, *args):
+        keys.append(key)
+        return objects_method(key, *args)
+
+    monkeypatch.setattr(store._objects, method, record_key)
+    return keys
+
+
+@pytest.fixture
+def store(tmp_path):
+    return ShardedRegistryStore(str(tmp_path / "registry"), tmp_path)
+
+
+def test_registry_is_stored_as_shards(tmp_path, store):
+    store.update_registry_proto(_registry_proto("driver_id", "customer_id"))
+
+    assert (tmp_path / "registry" / MANIFEST_KEY).exists()
+    assert len(_shard_paths(tmp_path)) == 2
+    reader = ShardedRegistryStore(str(tmp_path / "registry"), tmp_path)
+    registry_proto = reader.get_registry_proto()
+    assert _entity_names(registry_proto) == ["customer_id", "driver_id"]
+
+
+def test_registry_with_sharded_store(tmp_path):
+    writer = Registry(str(tmp_path / "registry"), tmp_path, timedelta(0), sharded=True)
+    writer.apply_entity(Entity("driver_id", value_type=ValueType.INT64), PROJECT)
+    reader = Registry(str(tmp_path / "registry"), tmp_path, timedelta(0), sharded=True)
+
+    assert [entity.name for entity in reader.list_entities(PROJECT)] == ["driver_id"]
+
+
+def test_commits_only_upload_new_shards(tmp_path, store, monkeypatch):
+    store.update_registry_proto(_registry_proto("driver_id", "customer_id"))
+    written_keys = _spy(monkeypatch, store, "write")
+
+    store.update_registry_proto(_registry_proto("driver_id", "customer_id", "rider"))
+    assert len(written_keys) == 2
+    assert written_keys[-1] == MANIFEST_KEY
+
+    # Shards are never uploaded again, however long ago they were written
+    written_keys.clear()
+    store.update_registry_proto(_registry_proto("driver_id", "customer_id", "rider"))
+    assert written_keys == [MANIFEST_KEY]
+
+
+def test_written_shards_are_not_downloaded_again(tmp_path, store, monkeypatch):
+    store.update_registry_proto(_registry_proto("driver_id", "customer_id"))
+    other_store = ShardedRegistryStore(str(tmp_path / "registry"), tmp_path)
+    other_store.update_registry_proto(
+        _registry_proto("driver_id", "customer_id", "rider")
+    )
+    read_keys = _spy(monkeypatch, store, "read")
+
+    registry_proto, _ = store.get_registry_proto_if_modified(None)
+
+    assert _entity_names(registry_proto) == ["customer_id", "driver_id", "rider"]
+    assert len(read_keys) == 2
+    assert read_keys[0] == MANIFEST_KEY
+
+
+def test_unreferenced_shards_are_deleted_after_grace_period(tmp_path, store):
+    store.update_registry_proto(_registry_proto("driver_id", "customer_id"))
+    store.update_registry_proto(_registry_proto("driver_id"))
+    assert len(_shard_paths(tmp_path)) == 2
+    assert len(_read_manifest(tmp_path).retired_shards) == 1
+
+    # Shards retired by earlier commits stay retired until the grace period is over
+    store.update_registry_proto(_registry_proto("driver_id"))
+    assert len(_shard_paths(tmp_path)) == 2
+
+    _age_retired_shards(tmp_path, 2 * SHARD_GC_GRACE_SECONDS)
+    store.update_registry_proto(_registry_proto("driver_id"))
+
+    assert len(_shard_paths(tmp_path)) == 1
+    assert len(_read_manifest(tmp_path).retired_shards) == 0
+    assert _entity_names(store.get_registry_proto()) == ["driver_id"]
+
+
+def test_retired_shards_are_uploaded_again_when_referenced(tmp_path, store):
+    store.update_registry_proto(_registry_proto("driver_id", "customer_id"))
+    store.update_registry_proto(_registry_proto("driver_id"))
+    _age_retired_shards(tmp_path, 2 * SHARD_GC_GRACE_SECONDS)
+    store.update_registry_proto(_registry_proto("driver_id"))
+
+    store.update_registry_proto(_registry_proto("driver_id", "customer_id"))
+
+    assert len(_read_manifest(tmp_path).retired_shards) == 0
+    reader = ShardedRegistryStore(str(tmp_path / "registry"), tmp_path)
+    assert _entity_names(reader.get_registry_proto()) == ["customer_id", "driver_id"]
+
+
+def test_concurrent_commits_keep_shards_of_each_other(tmp_path, store):
+    store.update_registry_proto(_registry_proto("driver_id", "customer_id"))
+    other_store = ShardedRegistryStore(str(tmp_path / "registry"), tmp_path)
+
+    # Both stores commit changes based on the same version of the registry. The store whose manifest is
+    # written last still references the shard of customer_id, which the other store dropped.
+    other_store.update_registry_proto(_registry_proto("driver_id"))
+    store.update_registry_proto(_registry_proto("driver_id", "customer_id", "rider"))
+
+    reader = ShardedRegistryStore(str(tmp_path / "registry"), tmp_path)
+    assert _entity_names(reader.get_registry_proto()) == [
+        "customer_id",
+        "driver_id",
+        "rider",
+    ]
+
+
+def test_teardown_deletes_referenced_and_retired_shards(tmp_path, store):
+    store.update_registry_proto(_registry_proto("driver_id", "customer_id"))
+    store.update_registry_proto(_registry_proto("driver_id"))
+
+    store.teardown()
+
+    assert not (tmp_path / "registry" / MANIFEST_KEY).exists()
+    assert _shard_paths(tmp_path) == []
+    with pytest.raises(FileNotFoundError):
+        store.get_registry_proto()
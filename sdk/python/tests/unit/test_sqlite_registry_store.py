@@ -0,0 +1,131 @@
+from datetime import datetime, timedelta, timezone
+
+import pytest
+
+from feast import FileSource
+from feast.entity import Entity
+from feast.errors import RegistryUpdateConflict
+from feast.feature import Feature
+from feast.feature_view import FeatureView
+from feast.registry import Registry
+from feast.value_type import ValueType
+
+PROJECT = "test"
+START = datetime(2021, 8, 1, tzinfo=timezone.utc)
+
+
+def _registry(tmp_path):
+    # A ttl of 0 never expires the cache, so every registry keeps the version it read until it's refreshed
+    return Registry(f"sqlite://{tmp_path / 'registry.db'}", tmp_path, timedelta(0))
+
+
+def _entity(name, description=""):
+    return Entity(name=name, value_type=ValueType.INT64, description=description)
+
+
+def _feature_view():
+    return FeatureView(
+        name="driver_stats",
+        entities=["driver_id"],
+        features=[Feature(name="trips", dtype=ValueType.INT64)],
+        batch_source=FileSource(
+            path="driver_stats.parquet", event_timestamp_column="event_timestamp"
+        ),
+        ttl=timedelta(days=1),
+    )
+
+
+@pytest.fixture
+def registries(tmp_path):
+    registry = _registry(tmp_path)
+    registry.apply_entity(_entity("driver_id"), PROJECT)
+    registry.apply_feature_view(_feature_view(), PROJECT)
+
+    writer, other_writer = _registry(tmp_path), _registry(tmp_path)
+    writer.refresh()
+    other_writer.refresh()
+    return writer, other_writer
+
+
+def test_concurrent_changes_to_different_objects_are_kept(tmp_path, registries):
+    writer, other_writer = registries
+
+    writer.apply_entity(_entity("customer_id"), PROJECT)
+    other_writer.apply_entity(_entity("merchant_id"), PROJECT)
+    other_writer.apply_entity(_entity("driver_id", description="driver"), PROJECT)
+
+    # The registry written last doesn't hold the changes of the other writer, it reads them on its next refresh
+    assert sorted(entity.name for entity in other_writer.list_entities(PROJECT)) == [
+        "customer_id",
+        "driver_id",
+        "merchant_id",
+    ]
+    reader = _registry(tmp_path)
+    assert sorted(entity.name for entity in reader.list_entities(PROJECT)) == [
+        "customer_id",
+        "driver_id",
+        "merchant_id",
+    ]
+    assert reader.get_entity("driver_id", PROJECT).description == "driver"
+
+
+def test_concurrent_updates_of_an_object_conflict(registries):
+    writer, other_writer = registries
+
+    writer.apply_entity(_entity("driver_id", description="driver"), PROJECT)
+    with pytest.raises(RegistryUpdateConflict):
+        other_writer.apply_entity(_entity("driver_id", description="rider"), PROJECT)
+
+    other_writer.refresh()
+    other_writer.apply_entity(_entity("driver_id", description="rider"), PROJECT)
+    assert other_writer.get_entity("driver_id", PROJECT).description == "rider"
+
+
+def test_deleting_an_object_updated_concurrently_conflicts(registries):
+    writer, other_writer = registries
+
+    writer.apply_materialization(
+        _feature_view(), PROJECT, START, START + timedelta(hours=1)
+    )
+    with pytest.raises(RegistryUpdateConflict):
+        other_writer.delete_feature_view("driver_stats", PROJECT)
+
+
+def test_concurrent_inserts_of_an_object_conflict(registries):
+    writer, other_writer = registries
+
+    writer.apply_entity(_entity("customer_id"), PROJECT)
+    with pytest.raises(RegistryUpdateConflict):
+        other_writer.apply_entity(
+            _entity("customer_id", description="customer"), PROJECT
+        )
+
+
+def test_materialization_intervals_are_applied_on_top_of_concurrent_ones(
+    tmp_path, registries
+):
+    writer, other_writer = registries
+    first_interval = (START, START + timedelta(hours=1))
+    second_interval = (START + timedelta(hours=1), START + timedelta(hours=2))
+
+    writer.apply_materialization(_feature_view(), PROJECT, *first_interval)
+    # The conflict with the interval recorded by the other writer is retried after a refresh
+    other_writer.apply_materialization(_feature_view(), PROJECT, *second_interval)
+
+    feature_view = _registry(tmp_path).get_feature_view("driver_stats", PROJECT)
+    assert feature_view.materialization_intervals == [first_interval, second_interval]
+
+
+def test_unmodified_registry_is_not_read_again(tmp_path, registries):
+    writer, _ = registries
+    store = writer._registry_store
+    _, token = store.get_registry_proto_if_modified(None)
+
+    registry_proto, current_token = store.get_registry_proto_if_modified(token)
+    assert registry_proto is None
+    assert current_token == token
+
+    _registry(tmp_path).apply_entity(_entity("customer_id"), PROJECT)
+    registry_proto, current_token = store.get_registry_proto_if_modified(token)
+    assert registry_proto is not None
+    assert current_token != token
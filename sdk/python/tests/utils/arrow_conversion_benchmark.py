@@ -0,0 +1,125 @@
+import statistics
+import time
+from datetime import datetime, timedelta
+
+import click
+import pandas as pd
+import pyarrow as pa
+
+from feast import FileSource
+from feast.driver_test_data import create_driver_hourly_stats_df
+from feast.feature import Feature
+from feast.feature_view import FeatureView
+from feast.infra.provider import _convert_arrow_to_proto
+from feast.protos.feast.types.EntityKey_pb2 import EntityKey as EntityKeyProto
+from feast.type_map import python_value_to_proto_value
+from feast.value_type import ValueType
+
+
+def create_driver_hourly_stats_feature_view():
+    return FeatureView(
+        name="driver_stats",
+        entities=["driver_id"],
+        features=[
+            Feature(name="conv_rate", dtype=ValueType.FLOAT),
+            Feature(name="acc_rate", dtype=ValueType.FLOAT),
+            Feature(name="avg_daily_trips", dtype=ValueType.INT32),
+        ],
+        batch_source=FileSource(
+            path="unused.parquet",
+            event_timestamp_column="event_timestamp",
+            created_timestamp_column="created",
+        ),
+        ttl=timedelta(hours=2),
+    )
+
+
+def convert_arrow_to_proto_by_row(table, feature_view, join_keys):
+    """The row by row conversion that _convert_arrow_to_proto used to do, kept as the baseline."""
+    rows_to_write = []
+
+    def _coerce_datetime(ts):
+        if isinstance(ts, pd.Timestamp):
+            return ts.to_pydatetime()
+        else:
+            return ts
+
+    for row in zip(*table.to_pydict().values()):
+        entity_key = EntityKeyProto()
+        for join_key in join_keys:
+            entity_key.join_keys.append(join_key)
+            idx = table.column_names.index(join_key)
+            value = python_value_to_proto_value(row[idx])
+            entity_key.entity_values.append(value)
+        feature_dict = {}
+        for feature in feature_view.features:
+            idx = table.column_names.index(feature.name)
+            value = python_value_to_proto_value(row[idx], feature.dtype)
+            feature_dict[feature.name] = value
+        event_timestamp_idx = table.column_names.index(
+            feature_view.batch_source.event_timestamp_column
+        )
+        event_timestamp = _coerce_datetime(row[event_timestamp_idx])
+
+        if feature_view.batch_source.created_timestamp_column:
+            created_timestamp_idx = table.column_names.index(
+                feature_view.batch_source.created_timestamp_column
+            )
+            created_timestamp = _coerce_datetime(row[created_timestamp_idx])
+        else:
+            created_timestamp = None
+
+        rows_to_write.append(
+            (entity_key, feature_dict, event_timestamp, created_timestamp)
+        )
+    return rows_to_write
+
+
+def measure(convert, warmup, iterations):
+    for _ in range(warmup):
+        convert()
+
+    timings = []
+    for _ in range(iterations):
+        start = time.perf_counter()
+        convert()
+        timings.append(time.perf_counter() - start)
+    return timings
+
+
+@click.command(name="run")
+@click.option("--drivers", default=1000, help="Amount of distinct entities")
+@click.option("--days", default=7, help="Amount of days of hourly rows per entity")
+@click.option("--warmup", default=2, help="Iterations run before measuring")
+@click.option("--iterations", default=5, help="Measured iterations")
+def benchmark_conversion(drivers, days, warmup, iterations):
+    end_date = datetime.utcnow()
+    start_date = end_date - timedelta(days=days)
+    data = create_driver_hourly_stats_df(list(range(drivers)), start_date, end_date)
+    table = pa.Table.from_pandas(data)
+    feature_view = create_driver_hourly_stats_feature_view()
+    join_keys = ["driver_id"]
+
+    # Both paths have to produce the same rows for the comparison to mean anything
+    assert convert_arrow_to_proto_by_row(
+        table, feature_view, join_keys
+    ) == _convert_arrow_to_proto(table, feature_view, join_keys)
+
+    print(f"Converting {table.num_rows} rows, {iterations} iterations")
+    for name, convert in [
+        ("row by row", convert_arrow_to_proto_by_row),
+        ("columnar", _convert_arrow_to_proto),
+    ]:
+        timings = measure(
+            lambda: convert(table, feature_view, join_keys), warmup, iterations
+        )
+        mean = statistics.mean(timings)
+        stdev = statistics.stdev(timings) if len(timings) > 1 else 0.0
+        print(
+            f"{name:>12}: {mean * 1000:10.1f} ms +- {stdev * 1000:.1f} ms, "
+            f"{table.num_rows / mean:12.0f} rows/s"
+        )
+
+
+if __name__ == "__main__":
+    benchmark_conversion()